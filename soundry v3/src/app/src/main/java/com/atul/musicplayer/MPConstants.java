@@ -33,6 +33,8 @@ public class MPConstants {
     public static final String SETTINGS_THEME = "shared_pref_theme";
     public static final String SETTINGS_ALBUM_REQUEST = "shared_pref_album_request";
     public static final String SETTINGS_AUTO_PLAY = "shared_pref_auto_play_music";
+    public static final String SETTINGS_GAPLESS = "shared_pref_gapless_playback";
+    public static final String SETTINGS_CROSSFADE = "shared_pref_crossfade_seconds";
     public static final String SETTINGS_THEME_MODE = "shared_pref_theme_mode";
     public static final String SETTINGS_EXCLUDED_FOLDER = "shared_pref_excluded_folders";
     public static final String EXCLUDED_FOLDER_SEPARATOR = ":::";
@@ -7,9 +7,16 @@ import androidx.appcompat.app.AppCompatDelegate;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class MPPreferences {
+    private static volatile Snapshot snapshot;
+    // shared preferences only keep weak references to their listeners
+    private static SharedPreferences.OnSharedPreferenceChangeListener changeListener;
+
     private static SharedPreferences.Editor getEditor(Context context) {
         SharedPreferences sharedPreferences = context.getSharedPreferences(
                 MPConstants.PACKAGE_NAME, Context.MODE_PRIVATE
@@ -23,12 +30,31 @@ public class MPPreferences {
         );
     }
 
+    // settings as read the last time they changed, view holders and library
+    // refreshes read fields instead of going through the preferences store
+    public static Snapshot getSnapshot(Context context) {
+        Snapshot current = snapshot;
+        if (current == null)
+            current = loadSnapshot(context);
+        return current;
+    }
+
+    private static synchronized Snapshot loadSnapshot(Context context) {
+        if (snapshot == null) {
+            SharedPreferences sharedPreferences = getSharedPref(context);
+            changeListener = (preferences, key) -> snapshot = new Snapshot(preferences);
+            sharedPreferences.registerOnSharedPreferenceChangeListener(changeListener);
+            snapshot = new Snapshot(sharedPreferences);
+        }
+        return snapshot;
+    }
+
     public static void storeTheme(Context context, int theme) {
         getEditor(context).putInt(MPConstants.SETTINGS_THEME, theme).apply();
     }
 
     public static int getTheme(Context context) {
-        return getSharedPref(context).getInt(MPConstants.SETTINGS_THEME, R.color.blue);
+        return getSnapshot(context).theme;
     }
 
     public static void storeAlbumRequest(Context context, boolean val) {
@@ -40,11 +66,28 @@ public class MPPreferences {
     }
 
     public static boolean getAlbumRequest(Context context) {
-        return getSharedPref(context).getBoolean(MPConstants.SETTINGS_ALBUM_REQUEST, false);
+        return getSnapshot(context).albumRequest;
     }
 
     public static boolean getAutoPlay(Context context) {
-        return getSharedPref(context).getBoolean(MPConstants.SETTINGS_AUTO_PLAY, true);
+        return getSnapshot(context).autoPlay;
+    }
+
+    public static void storeGapless(Context context, boolean val) {
+        getEditor(context).putBoolean(MPConstants.SETTINGS_GAPLESS, val).apply();
+    }
+
+    public static boolean getGapless(Context context) {
+        return getSnapshot(context).gapless;
+    }
+
+    public static void storeCrossfade(Context context, int seconds) {
+        getEditor(context).putInt(MPConstants.SETTINGS_CROSSFADE, seconds).apply();
+    }
+
+    // seconds, 0 when tracks do not overlap
+    public static int getCrossfade(Context context) {
+        return getSnapshot(context).crossfade;
     }
 
     public static void storeThemeMode(Context context, int theme) {
@@ -52,7 +95,7 @@ public class MPPreferences {
     }
 
     public static int getThemeMode(Context context) {
-        return getSharedPref(context).getInt(MPConstants.SETTINGS_THEME_MODE, AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM);
+        return getSnapshot(context).themeMode;
     }
 
     public static void storeExcludedFolders(Context context, List<String> folders) {
@@ -60,12 +103,42 @@ public class MPPreferences {
         getEditor(context).putString(MPConstants.SETTINGS_EXCLUDED_FOLDER, String.join(MPConstants.EXCLUDED_FOLDER_SEPARATOR, folders)).apply();
     }
 
+    // a copy the caller may edit and store again
     public static List<String> getExcludedFolders(Context context) {
-        try {
-            String[] folders = getSharedPref(context).getString(MPConstants.SETTINGS_EXCLUDED_FOLDER, "").split(MPConstants.EXCLUDED_FOLDER_SEPARATOR);
-            return new ArrayList<>(Arrays.asList(folders));
-        } catch (Exception e) {
-            return new ArrayList<>();
+        return new ArrayList<>(getSnapshot(context).excludedFolders);
+    }
+
+    public static Set<String> getExcludedFolderSet(Context context) {
+        return getSnapshot(context).excludedFolders;
+    }
+
+    public static class Snapshot {
+        public final int theme;
+        public final int themeMode;
+        public final boolean albumRequest;
+        public final boolean autoPlay;
+        public final boolean gapless;
+        public final int crossfade;
+        // never contains the empty name
+        public final Set<String> excludedFolders;
+
+        private Snapshot(SharedPreferences sharedPreferences) {
+            theme = sharedPreferences.getInt(MPConstants.SETTINGS_THEME, R.color.blue);
+            themeMode = sharedPreferences.getInt(MPConstants.SETTINGS_THEME_MODE, AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM);
+            albumRequest = sharedPreferences.getBoolean(MPConstants.SETTINGS_ALBUM_REQUEST, false);
+            autoPlay = sharedPreferences.getBoolean(MPConstants.SETTINGS_AUTO_PLAY, true);
+            gapless = sharedPreferences.getBoolean(MPConstants.SETTINGS_GAPLESS, true);
+            crossfade = sharedPreferences.getInt(MPConstants.SETTINGS_CROSSFADE, 0);
+
+            Set<String> folders = new HashSet<>();
+            try {
+                String joined = sharedPreferences.getString(MPConstants.SETTINGS_EXCLUDED_FOLDER, "");
+                folders.addAll(Arrays.asList(joined.split(MPConstants.EXCLUDED_FOLDER_SEPARATOR)));
+                folders.remove("");
+            } catch (Exception e) {
+                folders.clear();
+            }
+            excludedFolders = Collections.unmodifiableSet(folders);
         }
     }
 }
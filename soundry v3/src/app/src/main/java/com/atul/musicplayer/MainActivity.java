@@ -4,7 +4,6 @@ import android.app.Activity;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.CountDownTimer;
-import android.os.Handler;
 import android.view.View;
 import android.widget.ImageButton;
 import android.widget.ImageView;
@@ -20,7 +19,6 @@ import androidx.viewpager.widget.ViewPager;
 
 import com.atul.musicplayer.activities.PlayerDialog;
 import com.atul.musicplayer.adapter.MainPagerAdapter;
-import com.atul.musicplayer.helper.MusicLibraryHelper;
 import com.atul.musicplayer.helper.PermissionHelper;
 import com.atul.musicplayer.helper.ThemeHelper;
 import com.atul.musicplayer.listener.MusicSelectListener;
@@ -69,7 +67,7 @@ public class MainActivity extends AppCompatActivity
         viewModel = new ViewModelProvider(this).get(MainViewModel.class);
 
         if (PermissionHelper.hasReadStoragePermission(MainActivity.this)) {
-            fetchMusicList();
+            viewModel.loadLibrary(MainActivity.this);
             setUpUiElements();
         } else {
             manageStoragePermission(MainActivity.this);
@@ -101,11 +99,7 @@ public class MainActivity extends AppCompatActivity
     }
 
     private void fetchMusicList() {
-        new Handler().post(() -> {
-            List<Music> musicList = MusicLibraryHelper.fetchMusicLibrary(MainActivity.this);
-            viewModel.setSongsList(musicList);
-            viewModel.parseFolderList(musicList);
-        });
+        viewModel.refreshLibrary(MainActivity.this);
     }
 
     public void setUpUiElements() {
@@ -208,15 +202,15 @@ public class MainActivity extends AppCompatActivity
 
     @Override
     public void onMusicSet(Music music) {
-        songName.setText(music.title);
+        songName.setText(music.getTitle());
         songDetails.setText(
                 String.format(Locale.getDefault(), "%s • %s",
-                        music.artist, music.album));
+                        music.getArtist(), music.getAlbum()));
         playerView.setVisibility(View.VISIBLE);
 
         if (albumState)
             Glide.with(getApplicationContext())
-                    .load(music.albumArt)
+                    .load(music.getAlbumArt())
                     .centerCrop()
                     .into(albumArt);
 
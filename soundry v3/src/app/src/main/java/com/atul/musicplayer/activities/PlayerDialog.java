@@ -10,13 +10,13 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 
 import com.atul.musicplayer.R;
+import com.atul.musicplayer.helper.ArtworkLoader;
 import com.atul.musicplayer.helper.MusicLibraryHelper;
 import com.atul.musicplayer.listener.PlayerDialogListener;
 import com.atul.musicplayer.model.Music;
 import com.atul.musicplayer.player.PlayerListener;
 import com.atul.musicplayer.player.PlayerManager;
 import com.atul.musicplayer.player.PlayerQueue;
-import com.bumptech.glide.Glide;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 
 import java.util.Locale;
@@ -98,14 +98,11 @@ public class PlayerDialog extends BottomSheetDialog implements SeekBar.OnSeekBar
     private void setUpUi() {
         Music music = playerManager.getCurrentMusic();
 
-        songName.setText(music.title);
+        songName.setText(music.getTitle());
         songAlbum.setText(String.format(Locale.getDefault(), "%s • %s",
-                music.artist, music.album));
+                music.getArtist(), music.getAlbum()));
 
-        Glide.with(getContext().getApplicationContext())
-                .load(music.albumArt)
-                .placeholder(R.drawable.ic_album_art)
-                .into(albumArt);
+        ArtworkLoader.getInstance().into(albumArt, music, ArtworkLoader.LARGE_SIZE);
 
         int icon = playerManager.isPlaying() ? R.drawable.ic_controls_pause : R.drawable.ic_controls_play;
         playPauseControl.setImageResource(icon);
@@ -1,6 +1,7 @@
 package com.atul.musicplayer.activities;
 
 import android.os.Bundle;
+import android.provider.MediaStore;
 import android.widget.ImageView;
 import android.widget.TextView;
 
@@ -13,9 +14,14 @@ import com.atul.musicplayer.MPConstants;
 import com.atul.musicplayer.MPPreferences;
 import com.atul.musicplayer.R;
 import com.atul.musicplayer.adapter.SongsAdapter;
+import com.atul.musicplayer.helper.LibraryAggregator;
+import com.atul.musicplayer.helper.MusicLibraryHelper;
+import com.atul.musicplayer.helper.MusicLibrarySync;
 import com.atul.musicplayer.helper.ThemeHelper;
 import com.atul.musicplayer.listener.MusicSelectListener;
 import com.atul.musicplayer.model.Album;
+import com.atul.musicplayer.model.Library;
+import com.atul.musicplayer.model.LibraryTable;
 import com.bumptech.glide.Glide;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.floatingactionbutton.ExtendedFloatingActionButton;
@@ -40,12 +46,43 @@ public class SelectedAlbumActivity extends AppCompatActivity {
         AppCompatDelegate.setDefaultNightMode(MPPreferences.getThemeMode(getApplicationContext()));
         setContentView(R.layout.activity_selected_album);
 
-        album = getIntent().getParcelableExtra("album");
-
         albumArt = findViewById(R.id.album_art);
         albumName = findViewById(R.id.album_name);
         albumDetails = findViewById(R.id.album_details);
         toolbar = findViewById(R.id.search_toolbar);
+        toolbar.setNavigationOnClickListener(v ->
+                finish()
+        );
+
+        long albumId = getIntent().getLongExtra("album_id", -1);
+        Library library = MusicLibrarySync.getInstance().getPublishedLibrary();
+        Album published = library == null ? null : library.getAlbum(albumId);
+        if (published != null)
+            setAlbum(published);
+        else
+            // the library is gone after a process restart, read just this album back
+            new Thread(() -> {
+                Album queried = queryAlbum(albumId);
+                runOnUiThread(() -> {
+                    if (isFinishing() || isDestroyed())
+                        return;
+                    if (queried == null)
+                        finish();
+                    else
+                        setAlbum(queried);
+                });
+            }).start();
+    }
+
+    private Album queryAlbum(long albumId) {
+        LibraryTable table = MusicLibraryHelper.fetchMusicLibrary(getApplicationContext(),
+                MediaStore.Audio.Media.ALBUM_ID + " = ?", new String[]{String.valueOf(albumId)}, null);
+        return LibraryAggregator.aggregate(table, MPPreferences.getExcludedFolderSet(getApplicationContext()))
+                .getAlbum(albumId);
+    }
+
+    private void setAlbum(Album album) {
+        this.album = album;
         toolbar.setTitle(album.title);
         toolbar.setSubtitle(String.format(Locale.getDefault(), "%d songs",
                 album.music.size()));
@@ -69,22 +106,19 @@ public class SelectedAlbumActivity extends AppCompatActivity {
 
             return false;
         });
-        toolbar.setNavigationOnClickListener(v ->
-                finish()
-        );
     }
 
     private void setAlbumDataToUi() {
         albumName.setText(album.title);
         albumDetails.setText(String.format(Locale.getDefault(), "%s . %s . %d songs",
-                album.music.get(0).artist,
+                album.music.get(0).getArtist(),
                 album.year,
                 album.music.size()));
 
         boolean state = MPPreferences.getAlbumRequest(this);
         if (state)
             Glide.with(this)
-                    .load(album.music.get(0).albumArt)
+                    .load(album.music.get(0).getAlbumArt())
                     .placeholder(R.drawable.ic_album_art)
                     .into(albumArt);
     }
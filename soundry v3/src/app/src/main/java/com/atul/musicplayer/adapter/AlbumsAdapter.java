@@ -8,25 +8,28 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.atul.musicplayer.MPPreferences;
 import com.atul.musicplayer.R;
+import com.atul.musicplayer.helper.ArtworkLoader;
+import com.atul.musicplayer.helper.ListDiffer;
 import com.atul.musicplayer.listener.AlbumSelectListener;
 import com.atul.musicplayer.model.Album;
-import com.bumptech.glide.Glide;
 
 import java.util.List;
 import java.util.Locale;
 
 public class AlbumsAdapter extends RecyclerView.Adapter<AlbumsAdapter.MyViewHolder> {
 
-    public final List<Album> albumList;
+    private final ListDiffer<Album> differ = new ListDiffer<>(this, new AlbumDiffCallback(), album -> album.id);
     public final AlbumSelectListener listener;
 
     public AlbumsAdapter(List<Album> albums, AlbumSelectListener listener) {
-        this.albumList = albums;
         this.listener = listener;
+        setHasStableIds(true);
+        differ.submitList(albums);
     }
 
     @NonNull
@@ -39,22 +42,33 @@ public class AlbumsAdapter extends RecyclerView.Adapter<AlbumsAdapter.MyViewHold
     @SuppressLint("DefaultLocale")
     @Override
     public void onBindViewHolder(@NonNull MyViewHolder holder, int position) {
-        holder.albumName.setText(albumList.get(position).title);
+        Album album = differ.getList().get(position);
+        holder.albumName.setText(album.title);
         holder.albumDetails.setText(String.format(Locale.getDefault(), "%s • %s • %d songs",
-                albumList.get(position).music.get(0).artist,
-                albumList.get(position).year,
-                albumList.get(position).music.size()));
+                album.music.get(0).getArtist(),
+                album.year,
+                album.music.size()));
 
         if (holder.state)
-            Glide.with(holder.albumArt.getContext())
-                    .load(albumList.get(position).music.get(0).albumArt)
-                    .placeholder(R.drawable.ic_album_art)
-                    .into(holder.albumArt);
+            ArtworkLoader.getInstance().into(holder.albumArt, album.music.get(0), ArtworkLoader.THUMBNAIL_SIZE);
+    }
+
+    public List<Album> getAlbumList() {
+        return differ.getList();
+    }
+
+    public void submitList(List<Album> albums) {
+        differ.submitList(albums);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getList().get(position).id;
     }
 
     @Override
     public int getItemCount() {
-        return albumList.size();
+        return differ.getList().size();
     }
 
     public class MyViewHolder extends RecyclerView.ViewHolder {
@@ -72,8 +86,30 @@ public class AlbumsAdapter extends RecyclerView.Adapter<AlbumsAdapter.MyViewHold
             albumDetails = itemView.findViewById(R.id.album_details);
             albumName = itemView.findViewById(R.id.album_name);
 
-            itemView.findViewById(R.id.album_art_layout).setOnClickListener(v ->
-                    listener.selectedAlbum(albumList.get(getAdapterPosition())));
+            itemView.findViewById(R.id.album_art_layout).setOnClickListener(v -> {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION)
+                    listener.selectedAlbum(differ.getList().get(position));
+            });
+        }
+    }
+
+    static class AlbumDiffCallback extends DiffUtil.ItemCallback<Album> {
+        @Override
+        public boolean areItemsTheSame(@NonNull Album oldItem, @NonNull Album newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Album oldItem, @NonNull Album newItem) {
+            if (oldItem == newItem)
+                return true;
+
+            return oldItem.title.equals(newItem.title)
+                    && oldItem.artist.equals(newItem.artist)
+                    && oldItem.year.equals(newItem.year)
+                    && oldItem.music.size() == newItem.music.size()
+                    && oldItem.music.get(0).getAlbumArt().equals(newItem.music.get(0).getAlbumArt());
         }
     }
 }
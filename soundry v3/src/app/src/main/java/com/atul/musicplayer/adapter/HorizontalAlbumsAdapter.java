@@ -12,20 +12,22 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.atul.musicplayer.MPPreferences;
 import com.atul.musicplayer.R;
+import com.atul.musicplayer.helper.ArtworkLoader;
+import com.atul.musicplayer.helper.ListDiffer;
 import com.atul.musicplayer.listener.AlbumSelectListener;
 import com.atul.musicplayer.model.Album;
-import com.bumptech.glide.Glide;
 
 import java.util.List;
 
 public class HorizontalAlbumsAdapter extends RecyclerView.Adapter<HorizontalAlbumsAdapter.MyViewHolder> {
 
-    public final List<Album> albumList;
+    private final ListDiffer<Album> differ = new ListDiffer<>(this, new AlbumsAdapter.AlbumDiffCallback(), album -> album.id);
     public final AlbumSelectListener listener;
 
     public HorizontalAlbumsAdapter(List<Album> albums, AlbumSelectListener listener) {
-        this.albumList = albums;
         this.listener = listener;
+        setHasStableIds(true);
+        differ.submitList(albums);
     }
 
     @NonNull
@@ -38,17 +40,24 @@ public class HorizontalAlbumsAdapter extends RecyclerView.Adapter<HorizontalAlbu
     @SuppressLint("DefaultLocale")
     @Override
     public void onBindViewHolder(@NonNull MyViewHolder holder, int position) {
-        holder.albumTitle.setText(albumList.get(position).title);
+        Album album = differ.getList().get(position);
+        holder.albumTitle.setText(album.title);
         if (holder.state)
-            Glide.with(holder.albumArt.getContext())
-                    .load(albumList.get(position).music.get(0).albumArt)
-                    .placeholder(R.drawable.ic_album_art)
-                    .into(holder.albumArt);
+            ArtworkLoader.getInstance().into(holder.albumArt, album.music.get(0), ArtworkLoader.THUMBNAIL_SIZE);
+    }
+
+    public void submitList(List<Album> albums) {
+        differ.submitList(albums);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getList().get(position).id;
     }
 
     @Override
     public int getItemCount() {
-        return albumList.size();
+        return differ.getList().size();
     }
 
     public class MyViewHolder extends RecyclerView.ViewHolder {
@@ -63,8 +72,11 @@ public class HorizontalAlbumsAdapter extends RecyclerView.Adapter<HorizontalAlbu
             albumArt = itemView.findViewById(R.id.album_art);
             albumTitle = itemView.findViewById(R.id.album_title);
 
-            itemView.findViewById(R.id.album_art_layout).setOnClickListener(v ->
-                    listener.selectedAlbum(albumList.get(getAdapterPosition())));
+            itemView.findViewById(R.id.album_art_layout).setOnClickListener(v -> {
+                int position = getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION)
+                    listener.selectedAlbum(differ.getList().get(position));
+            });
         }
     }
 }
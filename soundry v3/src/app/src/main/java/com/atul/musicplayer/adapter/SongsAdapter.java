@@ -7,27 +7,31 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.atul.musicplayer.MPPreferences;
 import com.atul.musicplayer.R;
-import com.atul.musicplayer.helper.MusicLibraryHelper;
+import com.atul.musicplayer.helper.ArtworkLoader;
+import com.atul.musicplayer.helper.ListDiffer;
+import com.atul.musicplayer.helper.DisplayStrings;
 import com.atul.musicplayer.listener.MusicSelectListener;
+import com.atul.musicplayer.model.LibraryTable;
 import com.atul.musicplayer.model.Music;
-import com.bumptech.glide.Glide;
+import com.atul.musicplayer.model.RowList;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class SongsAdapter extends RecyclerView.Adapter<SongsAdapter.MyViewHolder> {
 
-    private final List<Music> musicList;
+    private final ListDiffer<Music> differ = new ListDiffer<>(this, new MusicDiffCallback(), Music::getId);
     public final MusicSelectListener listener;
 
     public SongsAdapter(MusicSelectListener listener, List<Music> musics) {
         this.listener = listener;
-        this.musicList = musics;
+        setHasStableIds(true);
+        differ.submitList(musics);
     }
 
     @NonNull
@@ -39,37 +43,59 @@ public class SongsAdapter extends RecyclerView.Adapter<SongsAdapter.MyViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull MyViewHolder holder, int position) {
-        Music music = musicList.get(position);
+        // library lists hand out rows directly, a bind creates no Music
+        List<Music> musicList = differ.getList();
+        LibraryTable table;
+        int row;
+        if (musicList instanceof RowList) {
+            table = ((RowList) musicList).getTable(position);
+            row = ((RowList) musicList).getRow(position);
+        } else {
+            Music music = musicList.get(position);
+            table = music.getTable();
+            row = music.getRow();
+        }
+
+        DisplayStrings strings = table.getDisplayStrings();
 
-        holder.songName.setText(music.title);
-        holder.albumName.setText(
-                String.format(Locale.getDefault(), "%s • %s",
-                        music.artist,
-                        music.album)
-        );
+        holder.songName.setText(table.getTitle(row));
+        holder.albumName.setText(strings.getSubtitle(row));
 
-        if (music.dateAdded == -1)
+        if (table.getDateAdded(row) == -1)
             holder.songHistory.setVisibility(View.GONE);
-        else
-            holder.songHistory.setText(
-                    String.format(Locale.getDefault(), "%s • %s",
-                            MusicLibraryHelper.formatDuration(music.duration),
-                            MusicLibraryHelper.formatDate(music.dateAdded))
-            );
+        else {
+            holder.songHistory.setVisibility(View.VISIBLE);
+            holder.songHistory.setText(strings.getHistory(row));
+        }
 
-        if (holder.state && !music.albumArt.equals("")) {
-            Glide.with(holder.albumArt.getContext())
-                    .load(music.albumArt)
-                    .placeholder(R.drawable.ic_album_art)
-                    .into(holder.albumArt);
-        } else if (music.albumArt.equals("")) {
+        if (holder.state)
+            ArtworkLoader.getInstance().into(holder.albumArt, table.getAlbumId(row), table.hasAlbumArt(row),
+                    ArtworkLoader.THUMBNAIL_SIZE);
+        else if (!table.hasAlbumArt(row))
             holder.albumArt.setImageResource(R.drawable.ic_album_art);
+    }
+
+    public List<Music> getMusicList() {
+        return differ.getList();
+    }
+
+    public void submitList(List<Music> musics) {
+        differ.submitList(musics);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        List<Music> musicList = differ.getList();
+        if (musicList instanceof RowList) {
+            RowList rows = (RowList) musicList;
+            return rows.getTable(position).getId(rows.getRow(position));
         }
+        return musicList.get(position).getId();
     }
 
     @Override
     public int getItemCount() {
-        return musicList.size();
+        return differ.getList().size();
     }
 
     public class MyViewHolder extends RecyclerView.ViewHolder {
@@ -91,16 +117,45 @@ public class SongsAdapter extends RecyclerView.Adapter<SongsAdapter.MyViewHolder
 
 
             itemView.findViewById(R.id.root_layout).setOnClickListener(v -> {
+                    // a row being rebound by a diff has no position yet
+                    int position = getAdapterPosition();
+                    if (position == RecyclerView.NO_POSITION)
+                        return;
+
+                    List<Music> musicList = differ.getList();
                     List<Music> toPlay = new ArrayList<>();
                     boolean autoPlay = MPPreferences.getAutoPlay(itemView.getContext());
                     if (autoPlay) {
-                        toPlay.addAll(musicList.subList(getAdapterPosition(), musicList.size()));
+                        toPlay.addAll(musicList.subList(position, musicList.size()));
                     } else {
-                        toPlay.add(musicList.get(getAdapterPosition()));
+                        toPlay.add(musicList.get(position));
                     }
                     listener.playQueue(toPlay, false);
                 }
             );
         }
     }
+
+    private static class MusicDiffCallback extends DiffUtil.ItemCallback<Music> {
+        @Override
+        public boolean areItemsTheSame(@NonNull Music oldItem, @NonNull Music newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        // a row shared by two tables of the same scan never changes, a
+        // rescan may have changed what a row bound before
+        @Override
+        public boolean areContentsTheSame(@NonNull Music oldItem, @NonNull Music newItem) {
+            if (oldItem.getRow() == newItem.getRow()
+                    && oldItem.getTable().sharesRow(newItem.getTable(), oldItem.getRow()))
+                return true;
+
+            return oldItem.getTitle().equals(newItem.getTitle())
+                    && oldItem.getArtist().equals(newItem.getArtist())
+                    && oldItem.getAlbum().equals(newItem.getAlbum())
+                    && oldItem.getDuration() == newItem.getDuration()
+                    && oldItem.getDateAdded() == newItem.getDateAdded()
+                    && oldItem.getAlbumArt().equals(newItem.getAlbumArt());
+        }
+    }
 }
@@ -12,10 +12,13 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.atul.musicplayer.MPConstants;
 import com.atul.musicplayer.R;
 import com.atul.musicplayer.activities.SelectedAlbumActivity;
 import com.atul.musicplayer.adapter.AlbumsAdapter;
 import com.atul.musicplayer.helper.ListHelper;
+import com.atul.musicplayer.helper.SearchPipeline;
+import com.atul.musicplayer.helper.SearchSession;
 import com.atul.musicplayer.listener.AlbumSelectListener;
 import com.atul.musicplayer.model.Album;
 import com.atul.musicplayer.viewmodel.MainViewModel;
@@ -26,9 +29,10 @@ import java.util.List;
 
 public class AlbumsFragment extends Fragment implements AlbumSelectListener, SearchView.OnQueryTextListener {
 
-    private final List<Album> albumList = new ArrayList<>();
     private AlbumsAdapter albumsAdapter;
     private List<Album> unchangedList = new ArrayList<>();
+    private SearchSession<Album> searchSession = newSearchSession(unchangedList);
+    private SearchPipeline<Album> searchPipeline;
     private MainViewModel viewModel;
 
     private MaterialToolbar toolbar;
@@ -58,13 +62,11 @@ public class AlbumsFragment extends Fragment implements AlbumSelectListener, Sea
         RecyclerView recyclerView = view.findViewById(R.id.albums_layout);
         recyclerView.setHasFixedSize(true);
         recyclerView.setLayoutManager(new GridLayoutManager(requireActivity(), 2));
-        albumsAdapter = new AlbumsAdapter(albumList, this);
+        albumsAdapter = new AlbumsAdapter(unchangedList, this);
         recyclerView.setAdapter(albumsAdapter);
+        searchPipeline = new SearchPipeline<>("AlbumsSearch", this::updateAdapter);
 
         viewModel.getAlbumList().observe(requireActivity(), this::setUpAlbumListView);
-        viewModel.getSongsList().observe(requireActivity(), songs -> {
-            viewModel.parseAlbumList(songs);
-        });
 
         setUpOptions();
         return view;
@@ -72,9 +74,15 @@ public class AlbumsFragment extends Fragment implements AlbumSelectListener, Sea
 
     private void setUpAlbumListView(List<Album> albums) {
         unchangedList = albums;
+        searchSession = newSearchSession(albums);
+        searchPipeline.cancel();
         updateAdapter(unchangedList);
     }
 
+    private static SearchSession<Album> newSearchSession(List<Album> albums) {
+        return new SearchSession<>(albums, ListHelper::searchByAlbumName);
+    }
+
     private void setUpOptions() {
         toolbar.setOnMenuItemClickListener(item -> {
             int id = item.getItemId();
@@ -84,22 +92,22 @@ public class AlbumsFragment extends Fragment implements AlbumSelectListener, Sea
                 setUpSearchView();
                 return true;
             } else if (id == R.id.menu_sort_asc) {
-                updateAdapter(ListHelper.sortAlbumByName(albumList, false));
+                sortAlbums(MPConstants.SORT_ALBUM_BY_TITLE, false);
                 return true;
             } else if (id == R.id.menu_sort_dec) {
-                updateAdapter(ListHelper.sortAlbumByName(albumList, true));
+                sortAlbums(MPConstants.SORT_ALBUM_BY_TITLE, true);
                 return true;
             } else if (id == R.id.menu_most_songs) {
-                updateAdapter(ListHelper.sortAlbumBySongs(albumList, false));
+                sortAlbums(MPConstants.SORT_ALBUM_BY_SONGS, false);
                 return true;
             } else if (id == R.id.menu_least_songs) {
-                updateAdapter(ListHelper.sortAlbumBySongs(albumList, true));
+                sortAlbums(MPConstants.SORT_ALBUM_BY_SONGS, true);
                 return true;
             } else if (id == R.id.menu_longest_dur) {
-                updateAdapter(ListHelper.sortAlbumByDuration(albumList, false));
+                sortAlbums(MPConstants.SORT_ALBUM_BY_DURATION, false);
                 return true;
             } else if (id == R.id.menu_shortest_dur) {
-                updateAdapter(ListHelper.sortAlbumByDuration(albumList, true));
+                sortAlbums(MPConstants.SORT_ALBUM_BY_DURATION, true);
                 return true;
             }
 
@@ -111,26 +119,37 @@ public class AlbumsFragment extends Fragment implements AlbumSelectListener, Sea
         });
     }
 
+    private void sortAlbums(int mode, boolean reverse) {
+        List<Album> shown = albumsAdapter.getAlbumList();
+        if (shown.size() == unchangedList.size())
+            shown = unchangedList;
+        updateAdapter(viewModel.sortAlbums(shown, mode, reverse));
+    }
+
     private void setUpSearchView() {
         searchView.setOnQueryTextListener(this);
     }
 
     @Override
     public boolean onQueryTextSubmit(String query) {
-        updateAdapter(ListHelper.searchByAlbumName(unchangedList, query.toLowerCase()));
+        searchPipeline.submit(searchSession, query.toLowerCase());
         return true;
     }
 
     @Override
     public boolean onQueryTextChange(String newText) {
-        updateAdapter(ListHelper.searchByAlbumName(unchangedList, newText.toLowerCase()));
+        searchPipeline.search(searchSession, newText.toLowerCase());
         return true;
     }
 
     private void updateAdapter(List<Album> list) {
-        albumList.clear();
-        albumList.addAll(list);
-        albumsAdapter.notifyDataSetChanged();
+        albumsAdapter.submitList(list);
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        searchPipeline.cancel();
     }
 
     @Override
@@ -138,6 +157,6 @@ public class AlbumsFragment extends Fragment implements AlbumSelectListener, Sea
         requireActivity().startActivity(new Intent(
                 getActivity(),
                 SelectedAlbumActivity.class
-        ).putExtra("album", album));
+        ).putExtra("album_id", album.id));
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.core.content.ContextCompat;
@@ -30,6 +31,7 @@ import com.atul.musicplayer.viewmodel.MainViewModel;
 import com.bullhead.equalizer.DialogEqualizerFragment;
 import com.bullhead.equalizer.EqualizerFragment;
 import com.google.android.material.appbar.MaterialToolbar;
+import com.google.android.material.slider.Slider;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.atul.musicplayer.player.PlayerManager;
 
@@ -42,6 +44,8 @@ public class SettingsFragment extends Fragment implements View.OnClickListener {
     private RecyclerView accentView;
     private boolean state;
     private boolean autoPlayState;
+    private boolean gaplessState;
+    private TextView crossfadeSummary;
     private LinearLayout chipLayout;
     private ImageView currentThemeMode;
 
@@ -90,6 +94,9 @@ public class SettingsFragment extends Fragment implements View.OnClickListener {
 
 
         SwitchMaterial autoPlaySwitch = view.findViewById(R.id.auto_play_switch);
+        SwitchMaterial gaplessSwitch = view.findViewById(R.id.gapless_switch);
+        Slider crossfadeSlider = view.findViewById(R.id.crossfade_slider);
+        crossfadeSummary = view.findViewById(R.id.crossfade_summary);
         accentView = view.findViewById(R.id.accent_view);
         chipLayout = view.findViewById(R.id.chip_layout);
         currentThemeMode = view.findViewById(R.id.current_theme_mode);
@@ -104,12 +111,22 @@ public class SettingsFragment extends Fragment implements View.OnClickListener {
         state = MPPreferences.getAlbumRequest(requireActivity().getApplicationContext());
         autoPlayState = MPPreferences.getAutoPlay(requireActivity().getApplicationContext());
         autoPlaySwitch.setChecked(autoPlayState);
+        gaplessState = MPPreferences.getGapless(requireActivity().getApplicationContext());
+        gaplessSwitch.setChecked(gaplessState);
+        int crossfade = MPPreferences.getCrossfade(requireActivity().getApplicationContext());
+        crossfadeSlider.setValue(crossfade);
+        setCrossfadeSummary(crossfade);
         setCurrentThemeMode();
 
         accentView.setLayoutManager(new LinearLayoutManager(getActivity(), RecyclerView.HORIZONTAL, false));
         accentView.setAdapter(new AccentAdapter(getActivity()));
 
         autoPlaySwitch.setOnClickListener(this);
+        gaplessSwitch.setOnClickListener(this);
+        crossfadeSlider.addOnChangeListener((slider, value, fromUser) -> {
+            if (fromUser)
+                setCrossfade((int) value);
+        });
         themeModeOption.setOnClickListener(this);
         folderOption.setOnClickListener(this);
         refreshOption.setOnClickListener(this);
@@ -155,6 +172,9 @@ public class SettingsFragment extends Fragment implements View.OnClickListener {
         if (id == R.id.auto_play_switch)
             setAutoPlay();
 
+        else if (id == R.id.gapless_switch)
+            setGapless();
+
         else if (id == R.id.theme_mode_option) {
             int mode = chipLayout.getVisibility() == View.VISIBLE ? View.GONE : View.VISIBLE;
             chipLayout.setVisibility(mode);
@@ -219,4 +239,23 @@ public class SettingsFragment extends Fragment implements View.OnClickListener {
     private void setAutoPlay() {
         MPPreferences.storeAutoPlay(requireActivity().getApplicationContext(), (!autoPlayState));
     }
+
+    // takes effect from the next track, the one already chained still plays gapless
+    private void setGapless() {
+        gaplessState = !gaplessState;
+        MPPreferences.storeGapless(requireActivity().getApplicationContext(), gaplessState);
+    }
+
+    // like gapless, the new overlap applies from the next prepared track
+    private void setCrossfade(int seconds) {
+        MPPreferences.storeCrossfade(requireActivity().getApplicationContext(), seconds);
+        setCrossfadeSummary(seconds);
+    }
+
+    private void setCrossfadeSummary(int seconds) {
+        if (seconds == 0)
+            crossfadeSummary.setText(R.string.crossfade_off);
+        else
+            crossfadeSummary.setText(getString(R.string.crossfade_summary, seconds));
+    }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package com.atul.musicplayer.fragments;
 
-import android.annotation.SuppressLint;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -12,9 +11,11 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.atul.musicplayer.MPConstants;
 import com.atul.musicplayer.R;
 import com.atul.musicplayer.adapter.SongsAdapter;
-import com.atul.musicplayer.helper.ListHelper;
+import com.atul.musicplayer.helper.SearchPipeline;
+import com.atul.musicplayer.helper.SearchSession;
 import com.atul.musicplayer.listener.MusicSelectListener;
 import com.atul.musicplayer.model.Music;
 import com.atul.musicplayer.viewmodel.MainViewModel;
@@ -27,10 +28,11 @@ import java.util.List;
 public class SongsFragment extends Fragment implements SearchView.OnQueryTextListener {
 
     private static MusicSelectListener listener;
-    private final List<Music> musicList = new ArrayList<>();
     private MainViewModel viewModel;
     private SongsAdapter songsAdapter;
     private List<Music> unChangedList = new ArrayList<>();
+    private SearchSession<Music> searchSession;
+    private SearchPipeline<Music> searchPipeline;
 
     private MaterialToolbar toolbar;
     private SearchView searchView;
@@ -61,8 +63,9 @@ public class SongsFragment extends Fragment implements SearchView.OnQueryTextLis
 
         RecyclerView recyclerView = view.findViewById(R.id.songs_layout);
         recyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
-        songsAdapter = new SongsAdapter(listener, musicList);
+        songsAdapter = new SongsAdapter(listener, unChangedList);
         recyclerView.setAdapter(songsAdapter);
+        searchPipeline = new SearchPipeline<>("SongsSearch", this::updateAdapter);
 
         viewModel.getSongsList().observe(requireActivity(), this::setUpUi);
 
@@ -72,8 +75,12 @@ public class SongsFragment extends Fragment implements SearchView.OnQueryTextLis
 
     private void setUpUi(List<Music> songList) {
         unChangedList = songList;
-        musicList.clear();
-        musicList.addAll(unChangedList);
+        searchSession = new SearchSession<>(songList, viewModel::searchSongs);
+
+        // results of a search on the old list are stale now, a streamed scan
+        // that grows the list is diffed into appends
+        searchPipeline.cancel();
+        updateAdapter(songList);
     }
 
     private void setUpOptions() {
@@ -85,16 +92,16 @@ public class SongsFragment extends Fragment implements SearchView.OnQueryTextLis
                 setUpSearchView();
                 return true;
             } else if (id == R.id.menu_sort_asc) {
-                updateAdapter(ListHelper.sortMusic(musicList, false));
+                sortSongs(MPConstants.SORT_MUSIC_BY_TITLE, false);
                 return true;
             } else if (id == R.id.menu_sort_dec) {
-                updateAdapter(ListHelper.sortMusic(musicList, true));
+                sortSongs(MPConstants.SORT_MUSIC_BY_TITLE, true);
                 return true;
             } else if (id == R.id.menu_newest_first) {
-                updateAdapter(ListHelper.sortMusicByDateAdded(musicList, false));
+                sortSongs(MPConstants.SORT_MUSIC_BY_DATE_ADDED, false);
                 return true;
             } else if (id == R.id.menu_oldest_first) {
-                updateAdapter(ListHelper.sortMusicByDateAdded(musicList, true));
+                sortSongs(MPConstants.SORT_MUSIC_BY_DATE_ADDED, true);
                 return true;
             }
 
@@ -106,34 +113,44 @@ public class SongsFragment extends Fragment implements SearchView.OnQueryTextLis
         });
     }
 
+    // search results are a subset of the list, one of the same size shows the
+    // whole list and can use the cached orders
+    private void sortSongs(int mode, boolean reverse) {
+        List<Music> shown = songsAdapter.getMusicList();
+        if (shown.size() == unChangedList.size())
+            shown = unChangedList;
+        updateAdapter(viewModel.sortSongs(shown, mode, reverse));
+    }
+
     private void setUpSearchView() {
         searchView.setOnQueryTextListener(this);
     }
 
     @Override
     public boolean onQueryTextSubmit(String query) {
-        onQueryTextChange(query);
+        searchPipeline.submit(getSearchSession(), query.toLowerCase());
         return true;
     }
 
     @Override
     public boolean onQueryTextChange(String query) {
-        setSearchResult(query);
+        searchPipeline.search(getSearchSession(), query.toLowerCase());
         return true;
     }
 
-    private void setSearchResult(String query) {
-        if(query.length() > 0) {
-            updateAdapter(ListHelper.searchMusicByName(unChangedList, query.toLowerCase()));
-        }else {
-            updateAdapter(unChangedList);
-        }
+    private SearchSession<Music> getSearchSession() {
+        if (searchSession == null)
+            searchSession = new SearchSession<>(unChangedList, viewModel::searchSongs);
+        return searchSession;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        searchPipeline.cancel();
     }
 
-    @SuppressLint("NotifyDataSetChanged")
     private void updateAdapter(List<Music> list) {
-        musicList.clear();
-        musicList.addAll(list);
-        songsAdapter.notifyDataSetChanged();
+        songsAdapter.submitList(list);
     }
 }
\ No newline at end of file
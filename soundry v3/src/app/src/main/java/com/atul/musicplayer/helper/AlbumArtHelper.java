@@ -0,0 +1,23 @@
+package com.atul.musicplayer.helper;
+
+import com.atul.musicplayer.App;
+import com.atul.musicplayer.R;
+
+public class AlbumArtHelper {
+    private static final LongHashMap<String> uris = new LongHashMap<>();
+    private static String albumArtDir;
+
+    // built the first time an album is rendered, the scan only records
+    // whether a row has art at all
+    public static synchronized String getAlbumArtUri(long albumId) {
+        String uri = uris.get(albumId);
+        if (uri == null) {
+            if (albumArtDir == null)
+                albumArtDir = App.getContext().getString(R.string.album_art_dir);
+
+            uri = albumArtDir + "/" + albumId;
+            uris.put(albumId, uri);
+        }
+        return uri;
+    }
+}
@@ -0,0 +1,249 @@
+package com.atul.musicplayer.helper;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AtomicFile;
+
+import com.atul.musicplayer.App;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// dominant color of each album cover, extracted in the background for every
+// album of a published library and kept in a file next to the library
+// snapshot. A color belongs to the cover version it was taken from, a
+// changed cover gets a new one. Reads are a hash lookup, the notification
+// and the album views never touch a bitmap for it
+public class AlbumColors {
+    private static final String FILE_NAME = "album.colors";
+    private static final int MAGIC = 0x414c4243;
+    private static final int FORMAT_VERSION = 2;
+    // new colors come in bursts while scrolling, one write covers the burst
+    private static final long WRITE_DELAY_MS = 5000;
+    // the histogram is taken over a downscaled copy of the thumbnail
+    private static final int SAMPLE_SIZE = 32;
+    // 4 bits per channel
+    private static final int BUCKET_SHIFT = 4;
+    private static AlbumColors instance = null;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // a write still running when the next one starts must not share the file
+    private final Object fileLock = new Object();
+    // the file is read once, outside the lock the main thread reads under
+    private final Object loadLock = new Object();
+    // album id to position in the arrays below, guarded by this
+    private final LongHashMap<Integer> positions = new LongHashMap<>();
+    private long[] albumIds = new long[64];
+    private long[] versions = new long[64];
+    private int[] colors = new int[64];
+    private int size = 0;
+    // cover versions of the published library, empty until one is published
+    private volatile LongHashMap<Long> currentVersions = new LongHashMap<>();
+    private boolean loaded = false;
+    private boolean writeScheduled = false;
+
+    private AlbumColors(Context context) {
+        this.context = context;
+    }
+
+    public static synchronized AlbumColors getInstance() {
+        if (instance == null) {
+            instance = new AlbumColors(App.getContext());
+        }
+        return instance;
+    }
+
+    private AtomicFile getFile() {
+        return new AtomicFile(new File(context.getNoBackupFilesDir(), FILE_NAME));
+    }
+
+    public synchronized int getColor(long albumId, int fallback) {
+        Integer position = positions.get(albumId);
+        return position == null || !isCurrent(position) ? fallback : colors[position];
+    }
+
+    public synchronized boolean hasColor(long albumId) {
+        Integer position = positions.get(albumId);
+        return position != null && isCurrent(position);
+    }
+
+    // true when the album has a color taken from the given cover version
+    public synchronized boolean hasColor(long albumId, long version) {
+        Integer position = positions.get(albumId);
+        return position != null && versions[position] == version;
+    }
+
+    // a color stays usable until a library says its cover changed
+    private boolean isCurrent(int position) {
+        Long version = currentVersions.get(albumIds[position]);
+        return version == null || version == versions[position];
+    }
+
+    // called with the cover versions of every published library
+    public void setVersions(LongHashMap<Long> versions) {
+        currentVersions = versions;
+    }
+
+    // reads the stored colors, called on a worker at startup
+    public void load() {
+        synchronized (loadLock) {
+            if (loaded)
+                return;
+            loaded = true;
+
+            long[] ids;
+            long[] storedVersions;
+            int[] values;
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(getFile().readFully()));
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                    return;
+
+                int count = in.readInt();
+                ids = new long[count];
+                storedVersions = new long[count];
+                values = new int[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = in.readLong();
+                    storedVersions[i] = in.readLong();
+                    values[i] = in.readInt();
+                }
+            } catch (IOException | RuntimeException e) {
+                // missing or unreadable file, colors are extracted again as covers load
+                return;
+            }
+
+            synchronized (this) {
+                for (int i = 0; i < ids.length; i++) {
+                    // colors extracted before the file was read are newer
+                    if (!positions.containsKey(ids[i]))
+                        put(ids[i], storedVersions[i], values[i]);
+                }
+            }
+        }
+    }
+
+    // called on the artwork loader workers with every cover they decode
+    public void extract(long albumId, long version, Bitmap thumbnail) {
+        load();
+        if (hasColor(albumId, version))
+            return;
+
+        int color = dominantColor(thumbnail);
+
+        synchronized (this) {
+            if (hasColor(albumId, version))
+                return;
+            put(albumId, version, color);
+            if (writeScheduled)
+                return;
+            writeScheduled = true;
+        }
+        mainHandler.postDelayed(() -> new Thread(this::write).start(), WRITE_DELAY_MS);
+    }
+
+    // the most common color after quantizing each channel to 4 bits, averaged
+    // over the pixels of that bucket. Transparent pixels do not count
+    private static int dominantColor(Bitmap thumbnail) {
+        Bitmap sample = Bitmap.createScaledBitmap(thumbnail, SAMPLE_SIZE, SAMPLE_SIZE, true);
+        int[] pixels = new int[SAMPLE_SIZE * SAMPLE_SIZE];
+        sample.getPixels(pixels, 0, SAMPLE_SIZE, 0, 0, SAMPLE_SIZE, SAMPLE_SIZE);
+        if (sample != thumbnail)
+            sample.recycle();
+
+        int bits = 8 - BUCKET_SHIFT;
+        int[] counts = new int[1 << (3 * bits)];
+        int best = -1;
+        for (int pixel : pixels) {
+            if (Color.alpha(pixel) < 128)
+                continue;
+            int bucket = bucket(pixel, bits);
+            counts[bucket]++;
+            if (best < 0 || counts[bucket] > counts[best])
+                best = bucket;
+        }
+        if (best < 0)
+            return Color.BLACK;
+
+        long red = 0, green = 0, blue = 0;
+        int count = 0;
+        for (int pixel : pixels) {
+            if (Color.alpha(pixel) < 128 || bucket(pixel, bits) != best)
+                continue;
+            red += Color.red(pixel);
+            green += Color.green(pixel);
+            blue += Color.blue(pixel);
+            count++;
+        }
+        return Color.rgb((int) (red / count), (int) (green / count), (int) (blue / count));
+    }
+
+    private static int bucket(int pixel, int bits) {
+        return (Color.red(pixel) >> BUCKET_SHIFT) << (2 * bits)
+                | (Color.green(pixel) >> BUCKET_SHIFT) << bits
+                | (Color.blue(pixel) >> BUCKET_SHIFT);
+    }
+
+    private void put(long albumId, long version, int color) {
+        Integer position = positions.get(albumId);
+        if (position != null) {
+            versions[position] = version;
+            colors[position] = color;
+            return;
+        }
+
+        if (size == albumIds.length) {
+            albumIds = Arrays.copyOf(albumIds, size * 2);
+            versions = Arrays.copyOf(versions, size * 2);
+            colors = Arrays.copyOf(colors, size * 2);
+        }
+        albumIds[size] = albumId;
+        versions[size] = version;
+        colors[size] = color;
+        positions.put(albumId, size++);
+    }
+
+    private void write() {
+        long[] ids;
+        long[] storedVersions;
+        int[] values;
+        synchronized (this) {
+            writeScheduled = false;
+            ids = Arrays.copyOf(albumIds, size);
+            storedVersions = Arrays.copyOf(versions, size);
+            values = Arrays.copyOf(colors, size);
+        }
+
+        synchronized (fileLock) {
+            AtomicFile file = getFile();
+            FileOutputStream stream = null;
+            try {
+                stream = file.startWrite();
+                DataOutputStream out = new DataOutputStream(stream);
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    out.writeLong(ids[i]);
+                    out.writeLong(storedVersions[i]);
+                    out.writeInt(values[i]);
+                }
+                out.flush();
+                file.finishWrite(stream);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                if (stream != null)
+                    file.failWrite(stream);
+            }
+        }
+    }
+}
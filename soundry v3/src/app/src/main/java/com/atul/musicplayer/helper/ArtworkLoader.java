@@ -0,0 +1,390 @@
+package com.atul.musicplayer.helper;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import com.atul.musicplayer.App;
+import com.atul.musicplayer.R;
+import com.atul.musicplayer.model.Album;
+import com.atul.musicplayer.model.Library;
+import com.atul.musicplayer.model.Music;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// album art by album id, decoded off the main thread at the size it is shown.
+// Covers are read bounds first and subsampled, results are kept in memory and
+// as small jpegs on disk so a cover is decoded from the full image only once
+public class ArtworkLoader {
+    // notification large icon, list rows and album grids
+    public static final int THUMBNAIL_SIZE = 256;
+    // player sheet
+    public static final int LARGE_SIZE = 768;
+
+    private static final String DISK_CACHE_DIR = "artwork";
+    private static final long MAX_DISK_CACHE_BYTES = 32 * 1024 * 1024;
+    private static final int WRITES_PER_TRIM = 16;
+    private static ArtworkLoader instance = null;
+
+    private final Context context;
+    private final File diskCacheDir;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<Long, Bitmap> memoryCache;
+    // albums without readable art, so a missing cover is not opened again
+    private final LongHashMap<Boolean> missing = new LongHashMap<>();
+    // newest date modified of each album's songs, part of the disk cache name
+    // so a retagged album is decoded again. Replaced whole on every library
+    private volatile LongHashMap<Long> versions = new LongHashMap<>();
+    // callbacks waiting for a key, only touched on the main thread
+    private final Map<Long, List<Callback>> pending = new HashMap<>();
+    private int writesSinceTrim = 0;
+    // bumped for every library, a color pass of an older one stops
+    private volatile int colorGeneration = 0;
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            2, 2, 30L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "ArtworkLoader");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // one cover at a time, visible covers keep both loader threads
+    private final ThreadPoolExecutor colorExecutor = new ThreadPoolExecutor(
+            1, 1, 30L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                    runnable.run();
+                }, "AlbumColors");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private ArtworkLoader(Context context) {
+        this.context = context;
+        this.diskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        executor.allowCoreThreadTimeOut(true);
+        colorExecutor.allowCoreThreadTimeOut(true);
+
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        memoryCache = new LruCache<Long, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    public static synchronized ArtworkLoader getInstance() {
+        if (instance == null) {
+            instance = new ArtworkLoader(App.getContext());
+        }
+        return instance;
+    }
+
+    private static long key(long albumId, int size) {
+        return (albumId << 16) | size;
+    }
+
+    // called for every published library: covers of albums that changed since
+    // the last one are dropped, albums without art get another look and
+    // albums without a color for their cover get one in the background
+    public void setLibrary(Library library) {
+        LongHashMap<Long> oldVersions = versions;
+        LongHashMap<Long> newVersions = new LongHashMap<>(library.albums.size());
+        for (Album album : library.albums) {
+            long version = 0;
+            for (Music music : album.music)
+                version = Math.max(version, music.getDateAdded());
+            newVersions.put(album.id, version);
+
+            Long oldVersion = oldVersions.get(album.id);
+            if (oldVersion != null && oldVersion != version) {
+                memoryCache.remove(key(album.id, THUMBNAIL_SIZE));
+                memoryCache.remove(key(album.id, LARGE_SIZE));
+            }
+        }
+        versions = newVersions;
+        AlbumColors.getInstance().setVersions(newVersions);
+
+        synchronized (missing) {
+            missing.clear();
+        }
+
+        int generation = ++colorGeneration;
+        colorExecutor.execute(() -> extractColors(library.albums, newVersions, generation));
+    }
+
+    // thumbnails read for this land in the disk cache, not in memory
+    private void extractColors(List<Album> albums, LongHashMap<Long> albumVersions, int generation) {
+        AlbumColors albumColors = AlbumColors.getInstance();
+        albumColors.load();
+        for (Album album : albums) {
+            if (generation != colorGeneration)
+                return;
+            if (album.music.isEmpty() || !album.music.get(0).hasAlbumArt())
+                continue;
+
+            long version = albumVersions.get(album.id);
+            if (albumColors.hasColor(album.id, version))
+                continue;
+
+            Bitmap bitmap = memoryCache.get(key(album.id, THUMBNAIL_SIZE));
+            boolean cached = bitmap != null;
+            if (!cached)
+                bitmap = readOrDecode(album.id, THUMBNAIL_SIZE, version);
+            if (bitmap == null)
+                continue;
+
+            albumColors.extract(album.id, version, bitmap);
+            if (!cached)
+                bitmap.recycle();
+        }
+    }
+
+    private long getVersion(long albumId) {
+        Long version = versions.get(albumId);
+        return version == null ? 0 : version;
+    }
+
+    // memory only, safe to call on the main thread
+    public Bitmap getCached(long albumId, int size) {
+        return memoryCache.get(key(albumId, size));
+    }
+
+    // memory, then disk, then the cover itself. Blocks, never call it on the main thread
+    public Bitmap loadSync(long albumId, int size) {
+        long key = key(albumId, size);
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null)
+            return bitmap;
+
+        synchronized (missing) {
+            if (missing.containsKey(key))
+                return null;
+        }
+
+        long version = getVersion(albumId);
+        bitmap = readOrDecode(albumId, size, version);
+        if (bitmap == null)
+            return null;
+
+        AlbumColors.getInstance().extract(albumId, version, bitmap);
+        memoryCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    // disk, then the cover itself, which is written to disk for next time
+    private Bitmap readOrDecode(long albumId, int size, long version) {
+        File cached = new File(diskCacheDir, albumId + "_" + version + "_" + size + ".jpg");
+        Bitmap bitmap = BitmapFactory.decodeFile(cached.getPath());
+        if (bitmap != null) {
+            cached.setLastModified(System.currentTimeMillis());
+            return bitmap;
+        }
+
+        bitmap = decode(AlbumArtHelper.getAlbumArtUri(albumId), size);
+        if (bitmap == null) {
+            synchronized (missing) {
+                missing.put(key(albumId, size), Boolean.TRUE);
+            }
+            return null;
+        }
+        writeToDisk(cached, bitmap);
+        return bitmap;
+    }
+
+    // called on the main thread, so is the callback: with null when the album
+    // has no art, right away when the cover is already in memory
+    public void load(long albumId, int size, Callback callback) {
+        long key = key(albumId, size);
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            callback.onLoaded(bitmap);
+            return;
+        }
+
+        // rows of the same album share one decode
+        List<Callback> callbacks = pending.get(key);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        pending.put(key, callbacks);
+
+        executor.execute(() -> {
+            Bitmap loaded = loadSync(albumId, size);
+            mainHandler.post(() -> {
+                List<Callback> waiting = pending.remove(key);
+                if (waiting != null) {
+                    for (Callback waitingCallback : waiting)
+                        waitingCallback.onLoaded(loaded);
+                }
+            });
+        });
+    }
+
+    // the view is tagged with the album it shows, a recycled view ignores
+    // covers that arrive for the album it was bound to before
+    public void into(ImageView view, Music music, int size) {
+        into(view, music.getAlbumId(), music.hasAlbumArt(), size);
+    }
+
+    // the tag is a one element array made once per view, a rebind only
+    // overwrites the album id in it
+    public void into(ImageView view, long albumId, boolean hasAlbumArt, int size) {
+        long[] tag;
+        if (view.getTag() instanceof long[]) {
+            tag = (long[]) view.getTag();
+        } else {
+            tag = new long[1];
+            view.setTag(tag);
+        }
+
+        if (!hasAlbumArt) {
+            tag[0] = -1;
+            view.setImageResource(R.drawable.ic_album_art);
+            return;
+        }
+
+        tag[0] = albumId;
+        Bitmap bitmap = getCached(albumId, size);
+        if (bitmap != null) {
+            view.setImageBitmap(bitmap);
+            return;
+        }
+
+        // the album color stands in while the cover decodes
+        AlbumColors albumColors = AlbumColors.getInstance();
+        if (albumColors.hasColor(albumId))
+            view.setImageDrawable(new ColorDrawable(albumColors.getColor(albumId, Color.BLACK)));
+        else
+            view.setImageResource(R.drawable.ic_album_art);
+        load(albumId, size, loaded -> {
+            if (loaded != null && tag[0] == albumId)
+                view.setImageBitmap(loaded);
+        });
+    }
+
+    // smallest power of two subsampling that keeps both sides at least size,
+    // then scaled so the shorter side is exactly size
+    private Bitmap decode(String uri, int size) {
+        ParcelFileDescriptor fileDescriptor = null;
+        try {
+            fileDescriptor = context.getContentResolver().openFileDescriptor(Uri.parse(uri), "r");
+            if (fileDescriptor == null)
+                return null;
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFileDescriptor(fileDescriptor.getFileDescriptor(), null, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0)
+                return null;
+
+            int sampleSize = 1;
+            while (options.outWidth / (sampleSize * 2) >= size && options.outHeight / (sampleSize * 2) >= size)
+                sampleSize *= 2;
+
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            Bitmap bitmap = BitmapFactory.decodeFileDescriptor(fileDescriptor.getFileDescriptor(), null, options);
+            if (bitmap == null)
+                return null;
+
+            int shorter = Math.min(bitmap.getWidth(), bitmap.getHeight());
+            if (shorter <= size)
+                return bitmap;
+
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                    bitmap.getWidth() * size / shorter, bitmap.getHeight() * size / shorter, true);
+            if (scaled != bitmap)
+                bitmap.recycle();
+            return scaled;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        } finally {
+            if (fileDescriptor != null) {
+                try {
+                    fileDescriptor.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void writeToDisk(File file, Bitmap bitmap) {
+        if (!diskCacheDir.isDirectory() && !diskCacheDir.mkdirs())
+            return;
+
+        // written aside and renamed, a reader never sees half a file
+        File temp = new File(diskCacheDir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file))
+            temp.delete();
+
+        boolean trim;
+        synchronized (this) {
+            trim = ++writesSinceTrim >= WRITES_PER_TRIM;
+            if (trim)
+                writesSinceTrim = 0;
+        }
+        if (trim)
+            trimDiskCache();
+    }
+
+    // least recently read thumbnails go first
+    private synchronized void trimDiskCache() {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null)
+            return;
+
+        long total = 0;
+        for (File file : files)
+            total += file.length();
+        if (total <= MAX_DISK_CACHE_BYTES)
+            return;
+
+        Arrays.sort(files, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+        for (int i = 0; i < files.length && total > MAX_DISK_CACHE_BYTES; i++) {
+            long length = files[i].length();
+            if (files[i].delete())
+                total -= length;
+        }
+    }
+
+    public interface Callback {
+        void onLoaded(Bitmap bitmap);
+    }
+}
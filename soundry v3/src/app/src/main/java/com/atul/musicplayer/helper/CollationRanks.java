@@ -0,0 +1,173 @@
+package com.atul.musicplayer.helper;
+
+import com.atul.musicplayer.model.Album;
+import com.atul.musicplayer.model.Artist;
+import com.atul.musicplayer.model.LibraryTable;
+import com.atul.musicplayer.model.Music;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// locale aware sort order of the strings in a table as plain ints. Titles
+// and dictionary values are collated once, sorting then compares ranks
+public class CollationRanks {
+    private final Locale locale;
+    private final int[] titleRanks;
+    private final int[] stringRanks;
+
+    private CollationRanks(Locale locale, int[] titleRanks, int[] stringRanks) {
+        this.locale = locale;
+        this.titleRanks = titleRanks;
+        this.stringRanks = stringRanks;
+    }
+
+    public static CollationRanks build(LibraryTable table) {
+        int size = table.size();
+        String[] values = new String[size + table.getDictionarySize()];
+        for (int row = 0; row < size; row++)
+            values[row] = table.getTitle(row);
+        for (int code = 0; code < table.getDictionarySize(); code++)
+            values[size + code] = table.getString(code);
+
+        // one rank space, a title and an album of the same name rank equal
+        int[] ranks = rank(values);
+        return new CollationRanks(Locale.getDefault(),
+                Arrays.copyOf(ranks, size), Arrays.copyOfRange(ranks, size, ranks.length));
+    }
+
+    public boolean isFor(Locale locale) {
+        return this.locale.equals(locale);
+    }
+
+    public int getTitleRank(int row) {
+        return titleRanks[row];
+    }
+
+    public int getStringRank(int code) {
+        return stringRanks[code];
+    }
+
+    // values equal to the collator share a rank
+    public static int[] rank(String[] values) {
+        Collator collator = Collator.getInstance();
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+
+        Entry[] entries = new Entry[values.length];
+        for (int i = 0; i < values.length; i++)
+            entries[i] = new Entry(collator.getCollationKey(values[i]), i);
+        Arrays.sort(entries);
+
+        int[] ranks = new int[values.length];
+        int rank = 0;
+        for (int i = 0; i < entries.length; i++) {
+            if (i > 0 && entries[i].compareTo(entries[i - 1]) != 0)
+                rank++;
+            ranks[entries[i].index] = rank;
+        }
+        return ranks;
+    }
+
+    public static int[] songTitleRanks(List<Music> songs) {
+        int[] ranks = new int[songs.size()];
+        LibraryTable table = songs.isEmpty() ? null : songs.get(0).getTable();
+        for (Music music : songs) {
+            if (music.getTable() != table) {
+                // ranks of different tables do not compare, collate the titles directly
+                String[] titles = new String[songs.size()];
+                for (int i = 0; i < titles.length; i++)
+                    titles[i] = songs.get(i).getTitle();
+                return rank(titles);
+            }
+        }
+
+        if (table != null) {
+            CollationRanks collationRanks = table.getCollationRanks();
+            for (int i = 0; i < ranks.length; i++)
+                ranks[i] = collationRanks.getTitleRank(songs.get(i).getRow());
+        }
+        return ranks;
+    }
+
+    public static int[] albumTitleRanks(List<Album> albums) {
+        int[] ranks = new int[albums.size()];
+        LibraryTable table = null;
+        for (int i = 0; i < ranks.length; i++) {
+            Music first = firstSong(albums.get(i));
+            if (first == null || (table != null && first.getTable() != table)) {
+                String[] titles = new String[albums.size()];
+                for (int j = 0; j < titles.length; j++)
+                    titles[j] = albums.get(j).title;
+                return rank(titles);
+            }
+            table = first.getTable();
+            ranks[i] = first.getAlbumCode();
+        }
+
+        if (table != null) {
+            CollationRanks collationRanks = table.getCollationRanks();
+            for (int i = 0; i < ranks.length; i++)
+                ranks[i] = collationRanks.getStringRank(ranks[i]);
+        }
+        return ranks;
+    }
+
+    public static int[] artistNameRanks(List<Artist> artists) {
+        int[] ranks = new int[artists.size()];
+        LibraryTable table = null;
+        for (int i = 0; i < ranks.length; i++) {
+            List<Album> albums = artists.get(i).albums;
+            Music first = albums.isEmpty() ? null : firstSong(albums.get(0));
+            if (first == null || (table != null && first.getTable() != table)) {
+                String[] names = new String[artists.size()];
+                for (int j = 0; j < names.length; j++)
+                    names[j] = artists.get(j).name;
+                return rank(names);
+            }
+            table = first.getTable();
+            ranks[i] = first.getArtistCode();
+        }
+
+        if (table != null) {
+            CollationRanks collationRanks = table.getCollationRanks();
+            for (int i = 0; i < ranks.length; i++)
+                ranks[i] = collationRanks.getStringRank(ranks[i]);
+        }
+        return ranks;
+    }
+
+    private static Music firstSong(Album album) {
+        return album.music.isEmpty() ? null : album.music.get(0);
+    }
+
+    // rank in the high bits, position in the low bits: a plain long sort is a
+    // stable sort by rank, same as the track sort of the aggregator
+    public static int[] sortedPositions(int[] ranks) {
+        long[] keys = new long[ranks.length];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = ((long) ranks[i] << 32) | i;
+        Arrays.sort(keys);
+
+        int[] positions = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            positions[i] = (int) keys[i];
+        return positions;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final CollationKey key;
+        final int index;
+
+        Entry(CollationKey key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return key.compareTo(other.key);
+        }
+    }
+}
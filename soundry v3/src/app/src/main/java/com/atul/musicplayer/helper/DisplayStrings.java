@@ -0,0 +1,102 @@
+package com.atul.musicplayer.helper;
+
+import com.atul.musicplayer.model.LibraryTable;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+// the "artist • album" and "duration • date" lines of the song rows, built
+// once per table. Equal values share one string, binding a row only reads
+// an array once the table has been precomputed
+public class DisplayStrings {
+    private static final String SEPARATOR = " • ";
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final LibraryTable table;
+    private final Locale locale;
+    private final String[] subtitles;
+    private final String[] histories;
+
+    // memoized by value, guarded by this
+    private final LongHashMap<String> subtitlesByCodes = new LongHashMap<>();
+    private final LongHashMap<String> historiesByValue = new LongHashMap<>();
+    private final LongHashMap<String> durations = new LongHashMap<>();
+    private final LongHashMap<String> dates = new LongHashMap<>();
+    private final StringBuilder builder = new StringBuilder();
+    private final SimpleDateFormat dateFormat;
+    private final TimeZone timeZone;
+    private final Date date = new Date();
+
+    public DisplayStrings(LibraryTable table) {
+        this.table = table;
+        this.locale = Locale.getDefault();
+        this.subtitles = new String[table.size()];
+        this.histories = new String[table.size()];
+        this.dateFormat = new SimpleDateFormat("d MMM yyyy", locale);
+        this.timeZone = TimeZone.getDefault();
+    }
+
+    public boolean isFor(Locale locale) {
+        return this.locale.equals(locale) && timeZone.equals(TimeZone.getDefault());
+    }
+
+    // runs on a worker after a library is published, the main thread then
+    // never formats while scrolling
+    public void precompute() {
+        for (int row = 0; row < subtitles.length; row++) {
+            getSubtitle(row);
+            getHistory(row);
+        }
+    }
+
+    public synchronized String getSubtitle(int row) {
+        String subtitle = subtitles[row];
+        if (subtitle == null) {
+            long key = ((long) table.getArtistCode(row) << 32) | table.getAlbumCode(row);
+            subtitle = subtitlesByCodes.get(key);
+            if (subtitle == null) {
+                builder.setLength(0);
+                subtitle = builder.append(table.getArtist(row)).append(SEPARATOR)
+                        .append(table.getAlbum(row)).toString();
+                subtitlesByCodes.put(key, subtitle);
+            }
+            subtitles[row] = subtitle;
+        }
+        return subtitle;
+    }
+
+    public synchronized String getHistory(int row) {
+        String history = histories[row];
+        if (history == null) {
+            long seconds = table.getDuration(row) / 1000;
+            long dateAdded = table.getDateAdded(row) * 1000;
+            long day = Math.floorDiv(dateAdded + timeZone.getOffset(dateAdded), DAY_MILLIS);
+
+            long key = (seconds << 32) | (day & 0xffffffffL);
+            history = historiesByValue.get(key);
+            if (history == null) {
+                String duration = durations.get(seconds);
+                if (duration == null) {
+                    builder.setLength(0);
+                    duration = MusicLibraryHelper.appendDuration(builder, seconds * 1000).toString();
+                    durations.put(seconds, duration);
+                }
+
+                String dateText = dates.get(day);
+                if (dateText == null) {
+                    date.setTime(dateAdded);
+                    dateText = dateFormat.format(date);
+                    dates.put(day, dateText);
+                }
+
+                builder.setLength(0);
+                history = builder.append(duration).append(SEPARATOR).append(dateText).toString();
+                historiesByValue.put(key, history);
+            }
+            histories[row] = history;
+        }
+        return history;
+    }
+}
@@ -0,0 +1,104 @@
+package com.atul.musicplayer.helper;
+
+// scores how well a field matches one search query. Exact hits rank by
+// where they start, longer queries also match with a few typos
+public class FuzzyMatcher {
+    // field weights, a title hit outranks the same hit in the album
+    public static final int TITLE = 4;
+    public static final int ARTIST = 3;
+    public static final int ALBUM = 2;
+    public static final int FILE_NAME = 1;
+
+    private static final int EXACT = 110;
+    private static final int PREFIX = 100;
+    private static final int WORD_START = 80;
+    private static final int INFIX = 60;
+    private static final int TYPO = 40;
+    private static final int TYPO_COST = 10;
+
+    private final String query;
+    private final int typoBudget;
+    // the last three columns of the edit distance table, reused for every field
+    private final int[][] columns;
+
+    // query is expected in lower case, as typed into the search views
+    public FuzzyMatcher(String query) {
+        this.query = query;
+        this.typoBudget = typoBudget(query.length());
+        this.columns = new int[3][query.length() + 1];
+    }
+
+    // longer queries tolerate more typos. A query only narrows the results of
+    // a prefix with the same budget, the prefix would have missed matches
+    // that need more edits
+    public static int typoBudget(int queryLength) {
+        if (queryLength < 5)
+            return 0;
+        return queryLength < 9 ? 1 : 2;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getTypoBudget() {
+        return typoBudget;
+    }
+
+    // 0 when the field does not match
+    public int score(String value) {
+        int length = query.length();
+        int best = 0;
+
+        for (int i = 0; i <= value.length() - length; i++) {
+            if (value.regionMatches(true, i, query, 0, length)) {
+                if (i == 0)
+                    return value.length() == length ? EXACT : PREFIX;
+                if (!Character.isLetterOrDigit(value.charAt(i - 1)))
+                    return WORD_START;
+                best = INFIX;
+            }
+        }
+
+        if (best > 0 || typoBudget == 0)
+            return best;
+
+        int distance = distance(value);
+        return distance <= typoBudget ? TYPO - TYPO_COST * distance : 0;
+    }
+
+    // fewest edits that turn the query into some substring of the value,
+    // swapping two neighbouring characters counts as one edit
+    private int distance(String value) {
+        int length = query.length();
+        int[] before = columns[0];
+        int[] previous = columns[1];
+        int[] current = columns[2];
+        for (int i = 0; i <= length; i++)
+            previous[i] = i;
+
+        int best = length;
+        char last = 0;
+        for (int j = 0; j < value.length() && best > 0; j++) {
+            char c = Character.toLowerCase(value.charAt(j));
+            // the first row stays 0, a match may start anywhere in the value
+            current[0] = 0;
+            for (int i = 1; i <= length; i++) {
+                char q = query.charAt(i - 1);
+                int distance = Math.min(Math.min(current[i - 1], previous[i]) + 1,
+                        previous[i - 1] + (q == c ? 0 : 1));
+                if (i > 1 && j > 0 && q == last && query.charAt(i - 2) == c)
+                    distance = Math.min(distance, before[i - 2] + 1);
+                current[i] = distance;
+            }
+            best = Math.min(best, current[length]);
+
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+            last = c;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,249 @@
+package com.atul.musicplayer.helper;
+
+import com.atul.musicplayer.model.Album;
+import com.atul.musicplayer.model.Artist;
+import com.atul.musicplayer.model.Folder;
+import com.atul.musicplayer.model.Library;
+import com.atul.musicplayer.model.LibraryTable;
+import com.atul.musicplayer.model.Music;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LibraryAggregator {
+    // below this, handing out shards costs more than it saves
+    private static final int SHARD_THRESHOLD = 20000;
+    private static final int SHARD_COUNT = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static ExecutorService shardExecutor;
+
+    // excluded folders come from the preference snapshot, a set without the empty name
+    public static Library aggregate(LibraryTable table, Set<String> excluded) {
+        // folders are compared by dictionary code, excluded names that never
+        // occur in the table have no code and cannot match a row anyway
+        boolean[] excludedCodes = new boolean[table.getDictionarySize()];
+        for (String name : excluded) {
+            int code = table.codeOf(name);
+            if (code >= 0)
+                excludedCodes[code] = true;
+        }
+
+        Partial result;
+        if (SHARD_COUNT > 1 && table.size() >= SHARD_THRESHOLD) {
+            result = aggregateSharded(table, excludedCodes);
+        } else {
+            result = new Partial(table);
+            result.add(0, table.size(), excludedCodes);
+        }
+
+        return result.build(excluded);
+    }
+
+    public static List<Music> filterExcluded(List<Music> musicList, Set<String> excluded) {
+        List<Music> songs = new ArrayList<>(musicList.size());
+
+        for (Music music : musicList) {
+            if (!excluded.contains(music.getRelativePath()))
+                songs.add(music);
+        }
+        return songs;
+    }
+
+    private static synchronized ExecutorService getShardExecutor() {
+        if (shardExecutor == null) {
+            shardExecutor = Executors.newFixedThreadPool(SHARD_COUNT, runnable -> {
+                Thread thread = new Thread(runnable, "LibraryAggregator");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return shardExecutor;
+    }
+
+    private static Partial aggregateSharded(LibraryTable table, boolean[] excludedCodes) {
+        int shardSize = (table.size() + SHARD_COUNT - 1) / SHARD_COUNT;
+        List<Callable<Partial>> shards = new ArrayList<>();
+
+        for (int start = 0; start < table.size(); start += shardSize) {
+            final int from = start;
+            final int to = Math.min(table.size(), start + shardSize);
+            shards.add(() -> {
+                Partial partial = new Partial(table);
+                partial.add(from, to, excludedCodes);
+                return partial;
+            });
+        }
+
+        try {
+            // shards are merged in order, so the result matches a single pass
+            List<Future<Partial>> futures = getShardExecutor().invokeAll(shards);
+            Partial result = futures.get(0).get();
+            for (int i = 1; i < futures.size(); i++)
+                result.merge(futures.get(i).get());
+            return result;
+        } catch (InterruptedException | ExecutionException e) {
+            Partial result = new Partial(table);
+            result.add(0, table.size(), excludedCodes);
+            return result;
+        }
+    }
+
+    private static class AlbumGroup {
+        private final long id;
+        private final int firstRow;
+        private final IntList rows = new IntList();
+        private long duration;
+
+        AlbumGroup(long id, int firstRow) {
+            this.id = id;
+            this.firstRow = firstRow;
+        }
+    }
+
+    private static class Partial {
+        private final LibraryTable table;
+        private final IntList songs = new IntList(1024);
+        // albums are keyed on the MediaStore album id, titles like "Greatest Hits"
+        // are shared by unrelated albums
+        private final LongHashMap<AlbumGroup> albumsById = new LongHashMap<>();
+        private final List<AlbumGroup> albums = new ArrayList<>();
+        // song count per folder, indexed by dictionary code
+        private final int[] folderCounts;
+
+        Partial(LibraryTable table) {
+            this.table = table;
+            this.folderCounts = new int[table.getDictionarySize()];
+        }
+
+        void add(int from, int to, boolean[] excludedCodes) {
+            for (int row = from; row < to; row++) {
+                int folderCode = table.getRelativePathCode(row);
+                folderCounts[folderCode] += 1;
+
+                if (excludedCodes[folderCode])
+                    continue;
+
+                songs.add(row);
+
+                long albumId = table.getAlbumId(row);
+                AlbumGroup album = albumsById.get(albumId);
+                if (album == null) {
+                    album = new AlbumGroup(albumId, row);
+                    albumsById.put(albumId, album);
+                    albums.add(album);
+                }
+                album.rows.add(row);
+                album.duration += table.getDuration(row);
+            }
+        }
+
+        void merge(Partial other) {
+            songs.addAll(other.songs);
+
+            for (int code = 0; code < folderCounts.length; code++)
+                folderCounts[code] += other.folderCounts[code];
+
+            for (AlbumGroup album : other.albums) {
+                AlbumGroup existing = albumsById.get(album.id);
+                if (existing == null) {
+                    albumsById.put(album.id, album);
+                    albums.add(album);
+                } else {
+                    existing.rows.addAll(album.rows);
+                    existing.duration += album.duration;
+                }
+            }
+        }
+
+        Library build(Set<String> excluded) {
+            List<Music> songList = table.rows(sortByTrack(table, songs));
+
+            CollationRanks collationRanks = table.getCollationRanks();
+            int[] albumRanks = new int[albums.size()];
+            for (int i = 0; i < albumRanks.length; i++)
+                albumRanks[i] = collationRanks.getStringRank(table.getAlbumCode(albums.get(i).firstRow));
+
+            List<Album> albumList = new ArrayList<>(albums.size());
+            IdentityHashMap<Album, Integer> artistCodes = new IdentityHashMap<>(albums.size());
+            for (int position : CollationRanks.sortedPositions(albumRanks)) {
+                AlbumGroup group = albums.get(position);
+                int row = group.firstRow;
+                Album album = new Album(group.id, table.getArtist(row), table.getAlbum(row),
+                        String.valueOf(table.getYear(row)), group.duration, table.rows(group.rows.toArray()));
+                albumList.add(album);
+                artistCodes.put(album, table.getArtistCode(row));
+            }
+
+            Artist[] artistsByCode = new Artist[table.getDictionarySize()];
+            List<Artist> artists = new ArrayList<>();
+            IntList artistRanks = new IntList();
+            for (Album album : albumList) {
+                int code = artistCodes.get(album);
+                Artist artist = artistsByCode[code];
+                if (artist == null) {
+                    List<Album> list = new ArrayList<>();
+                    list.add(album);
+                    artist = new Artist(album.artist, list, album.music.size(), 1);
+                    artistsByCode[code] = artist;
+                    artists.add(artist);
+                    artistRanks.add(collationRanks.getStringRank(code));
+                } else {
+                    artist.albums.add(album);
+                    artist.songCount += album.music.size();
+                    artist.albumCount += 1;
+                }
+            }
+
+            List<Artist> artistList = new ArrayList<>(artists.size());
+            for (int position : CollationRanks.sortedPositions(artistRanks.toArray()))
+                artistList.add(artists.get(position));
+
+            List<Folder> folderList = new ArrayList<>();
+            for (int code = 0; code < folderCounts.length; code++) {
+                if (folderCounts[code] > 0)
+                    folderList.add(new Folder(folderCounts[code], table.getString(code)));
+            }
+
+            // excluded folders never reach the scan, keep them listed so they
+            // can still be included again from the folder dialog
+            for (String name : excluded) {
+                int code = table.codeOf(name);
+                if (code < 0 || folderCounts[code] == 0)
+                    folderList.add(new Folder(0, name));
+            }
+            // excluded names may not be in the table, collate the few folders directly
+            String[] folderNames = new String[folderList.size()];
+            for (int i = 0; i < folderNames.length; i++)
+                folderNames[i] = folderList.get(i).name;
+
+            List<Folder> sortedFolders = new ArrayList<>(folderList.size());
+            for (int position : CollationRanks.sortedPositions(CollationRanks.rank(folderNames)))
+                sortedFolders.add(folderList.get(position));
+
+            return new Library(songList, albumList, artistList, sortedFolders);
+        }
+    }
+
+    // track in the high bits, row in the low bits: a plain long sort is a
+    // stable sort by track without boxing a comparator key per row
+    private static int[] sortByTrack(LibraryTable table, IntList rows) {
+        long[] keys = new long[rows.size()];
+        for (int i = 0; i < keys.length; i++) {
+            int row = rows.get(i);
+            keys[i] = ((long) table.getTrack(row) << 32) | row;
+        }
+        Arrays.sort(keys);
+
+        int[] sorted = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            sorted[i] = (int) keys[i];
+        return sorted;
+    }
+}
@@ -0,0 +1,57 @@
+package com.atul.musicplayer.helper;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.Process;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class LibraryScanner {
+    private static LibraryScanner instance = null;
+
+    // one worker and a single pending slot, a newer request replaces the queued one
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1),
+            runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "LibraryScanner");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    private CancellationSignal currentSignal;
+
+    public static LibraryScanner getInstance() {
+        if (instance == null) {
+            instance = new LibraryScanner();
+        }
+        return instance;
+    }
+
+    public synchronized void submit(ScanTask task) {
+        if (currentSignal != null)
+            currentSignal.cancel();
+
+        CancellationSignal signal = new CancellationSignal();
+        currentSignal = signal;
+
+        executor.execute(() -> {
+            try {
+                signal.throwIfCanceled();
+                task.run(signal);
+            } catch (OperationCanceledException e) {
+                // superseded by a newer scan
+            }
+        });
+    }
+
+    public interface ScanTask {
+        void run(CancellationSignal signal);
+    }
+}
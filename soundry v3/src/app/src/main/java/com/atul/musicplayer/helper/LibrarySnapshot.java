@@ -0,0 +1,281 @@
+package com.atul.musicplayer.helper;
+
+import android.content.Context;
+import android.util.AtomicFile;
+
+import com.atul.musicplayer.model.Album;
+import com.atul.musicplayer.model.Artist;
+import com.atul.musicplayer.model.Folder;
+import com.atul.musicplayer.model.Library;
+import com.atul.musicplayer.model.LibraryTable;
+import com.atul.musicplayer.model.Music;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public class LibrarySnapshot {
+    private static final String FILE_NAME = "library.snapshot";
+    private static final int MAGIC = 0x534e4452;
+    private static final int FORMAT_VERSION = 4;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+    public final String mediaStoreVersion;
+    public final long generation;
+    public final long lastDateModified;
+    public final LibraryTable table;
+    public final Library library;
+
+    public LibrarySnapshot(String mediaStoreVersion, long generation, long lastDateModified,
+                           LibraryTable table, Library library) {
+        this.mediaStoreVersion = mediaStoreVersion;
+        this.generation = generation;
+        this.lastDateModified = lastDateModified;
+        this.table = table;
+        this.library = library;
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(new File(context.getNoBackupFilesDir(), FILE_NAME));
+    }
+
+    public static LibrarySnapshot read(Context context) {
+        try {
+            byte[] data = getFile(context).readFully();
+            if (data.length < HEADER_SIZE)
+                return null;
+
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(data, 0, HEADER_SIZE));
+            if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION)
+                return null;
+
+            int payloadSize = header.readInt();
+            long checksum = header.readLong();
+            if (payloadSize != data.length - HEADER_SIZE)
+                return null;
+
+            CRC32 crc = new CRC32();
+            crc.update(data, HEADER_SIZE, payloadSize);
+            if (crc.getValue() != checksum)
+                return null;
+
+            return readPayload(new DataInputStream(new ByteArrayInputStream(data, HEADER_SIZE, payloadSize)));
+        } catch (IOException | RuntimeException e) {
+            // missing or unreadable snapshot, the next scan writes a fresh one
+            return null;
+        }
+    }
+
+    public static void write(Context context, LibrarySnapshot snapshot) {
+        AtomicFile file = getFile(context);
+        FileOutputStream stream = null;
+
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            snapshot.writePayload(new DataOutputStream(payload));
+            byte[] bytes = payload.toByteArray();
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length);
+
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(bytes.length);
+            out.writeLong(crc.getValue());
+            out.write(bytes);
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            if (stream != null)
+                file.failWrite(stream);
+        }
+    }
+
+    private static LibrarySnapshot readPayload(DataInputStream in) throws IOException {
+        String mediaStoreVersion = in.readBoolean() ? in.readUTF() : null;
+        long generation = in.readLong();
+        long lastDateModified = in.readLong();
+
+        int dictionarySize = in.readInt();
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++)
+            dictionary[i] = in.readUTF();
+
+        int tableSize = in.readInt();
+        LibraryTable.Builder builder = new LibraryTable.Builder(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            String artist = dictionary[in.readInt()];
+            String title = in.readUTF();
+            String displayName = in.readUTF();
+            String album = dictionary[in.readInt()];
+            String relativePath = dictionary[in.readInt()];
+            String absolutePath = in.readUTF();
+            builder.add(artist, title, displayName, album, relativePath, absolutePath,
+                    in.readInt(), in.readInt(), in.readInt(), in.readLong(),
+                    in.readLong(), in.readLong(), in.readLong(),
+                    in.readBoolean());
+        }
+        LibraryTable table = builder.build();
+
+        List<Music> songs = table.rows(readRows(in, tableSize));
+
+        int foldersSize = in.readInt();
+        List<Folder> folders = new ArrayList<>(foldersSize);
+        for (int i = 0; i < foldersSize; i++) {
+            String name = in.readUTF();
+            folders.add(new Folder(in.readInt(), name));
+        }
+
+        int albumsSize = in.readInt();
+        List<Album> albums = new ArrayList<>(albumsSize);
+        for (int i = 0; i < albumsSize; i++) {
+            long id = in.readLong();
+            String title = in.readUTF();
+            String year = in.readUTF();
+            String artist = in.readUTF();
+            long duration = in.readLong();
+
+            List<Music> music = table.rows(readRows(in, tableSize));
+            albums.add(new Album(id, artist, title, year, duration, music));
+        }
+
+        int artistsSize = in.readInt();
+        List<Artist> artists = new ArrayList<>(artistsSize);
+        for (int i = 0; i < artistsSize; i++) {
+            String name = in.readUTF();
+            int songCount = in.readInt();
+            int albumCount = in.readInt();
+
+            int albumListSize = in.readInt();
+            List<Album> artistAlbums = new ArrayList<>(albumListSize);
+            for (int j = 0; j < albumListSize; j++)
+                artistAlbums.add(albums.get(in.readInt()));
+
+            artists.add(new Artist(name, artistAlbums, songCount, albumCount));
+        }
+
+        return new LibrarySnapshot(mediaStoreVersion, generation, lastDateModified,
+                table, new Library(songs, albums, artists, folders));
+    }
+
+    private static int[] readRows(DataInputStream in, int tableSize) throws IOException {
+        int[] rows = new int[in.readInt()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = in.readInt();
+            if (rows[i] < 0 || rows[i] >= tableSize)
+                throw new IOException("Snapshot grouping refers to an unknown row");
+        }
+        return rows;
+    }
+
+    private void writePayload(DataOutputStream out) throws IOException {
+        out.writeBoolean(mediaStoreVersion != null);
+        if (mediaStoreVersion != null)
+            out.writeUTF(mediaStoreVersion);
+        out.writeLong(generation);
+        out.writeLong(lastDateModified);
+
+        // repeated columns go through a dictionary, groupings refer back to
+        // rows by index so each track is stored once
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[][] columns = new int[3][table.size()];
+        for (int row = 0; row < table.size(); row++) {
+            columns[0][row] = encode(codes, dictionary, table.getArtist(row));
+            columns[1][row] = encode(codes, dictionary, table.getAlbum(row));
+            columns[2][row] = encode(codes, dictionary, table.getRelativePath(row));
+        }
+
+        out.writeInt(dictionary.size());
+        for (String value : dictionary)
+            out.writeUTF(value);
+
+        out.writeInt(table.size());
+        for (int row = 0; row < table.size(); row++) {
+            out.writeInt(columns[0][row]);
+            out.writeUTF(table.getTitle(row));
+            out.writeUTF(table.getDisplayName(row));
+            out.writeInt(columns[1][row]);
+            out.writeInt(columns[2][row]);
+            out.writeUTF(table.getAbsolutePath(row));
+            out.writeInt(table.getYear(row));
+            out.writeInt(table.getTrack(row));
+            out.writeInt(table.getStartFrom(row));
+            out.writeLong(table.getDateAdded(row));
+            out.writeLong(table.getId(row));
+            out.writeLong(table.getDuration(row));
+            out.writeLong(table.getAlbumId(row));
+            out.writeBoolean(table.hasAlbumArt(row));
+        }
+
+        writeRows(out, library.songs);
+
+        out.writeInt(library.folders.size());
+        for (Folder folder : library.folders) {
+            out.writeUTF(folder.name);
+            out.writeInt(folder.songsCount);
+        }
+
+        Map<Album, Integer> albumIndex = new IdentityHashMap<>(library.albums.size());
+        out.writeInt(library.albums.size());
+        for (Album album : library.albums) {
+            albumIndex.put(album, albumIndex.size());
+            out.writeLong(album.id);
+            out.writeUTF(album.title);
+            out.writeUTF(album.year);
+            out.writeUTF(album.artist);
+            out.writeLong(album.duration);
+            writeRows(out, album.music);
+        }
+
+        out.writeInt(library.artists.size());
+        for (Artist artist : library.artists) {
+            out.writeUTF(artist.name);
+            out.writeInt(artist.songCount);
+            out.writeInt(artist.albumCount);
+
+            out.writeInt(artist.albums.size());
+            for (Album album : artist.albums)
+                out.writeInt(indexOf(albumIndex, album));
+        }
+    }
+
+    private void writeRows(DataOutputStream out, List<Music> musicList) throws IOException {
+        out.writeInt(musicList.size());
+        for (Music music : musicList) {
+            if (music.getTable() != table)
+                throw new IOException("Snapshot grouping refers to a row of another table");
+            out.writeInt(music.getRow());
+        }
+    }
+
+    private static int encode(Map<String, Integer> codes, List<String> dictionary, String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    private static <T> int indexOf(Map<T, Integer> index, T item) throws IOException {
+        Integer position = index.get(item);
+        if (position == null)
+            throw new IOException("Snapshot grouping refers to an unknown entry");
+        return position;
+    }
+}
@@ -0,0 +1,189 @@
+package com.atul.musicplayer.helper;
+
+import android.annotation.SuppressLint;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// owns the list shown by an adapter and turns every new list into the
+// smallest set of insert, remove, move and change notifications. Common
+// cases are answered on the spot, the rest is diffed on a worker. A reorder
+// rebinds with stable ids, diffing it would cost the square of the list
+public class ListDiffer<T> {
+    // diffing costs grow with the list times the changes, past this a full
+    // rebind is cheaper than waiting for the diff
+    private static final int MAX_DIFF_SIZE = 10000;
+    private static ExecutorService diffExecutor;
+
+    private final RecyclerView.Adapter<?> adapter;
+    private final DiffUtil.ItemCallback<T> itemCallback;
+    private final ItemIds<T> itemIds;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private List<T> list = Collections.emptyList();
+    // bumped for every submitted list, a diff of an older one is dropped
+    private volatile int generation;
+
+    public ListDiffer(RecyclerView.Adapter<?> adapter, DiffUtil.ItemCallback<T> itemCallback, ItemIds<T> itemIds) {
+        this.adapter = adapter;
+        this.itemCallback = itemCallback;
+        this.itemIds = itemIds;
+    }
+
+    private static synchronized ExecutorService getDiffExecutor() {
+        if (diffExecutor == null) {
+            diffExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "ListDiffer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return diffExecutor;
+    }
+
+    public List<T> getList() {
+        return list;
+    }
+
+    // called on the main thread, the list must not change afterwards
+    @SuppressLint("NotifyDataSetChanged")
+    public void submitList(List<T> newList) {
+        int current = ++generation;
+        List<T> oldList = list;
+
+        if (newList == oldList)
+            return;
+
+        if (oldList.isEmpty() || newList.isEmpty()) {
+            list = newList;
+            if (!oldList.isEmpty())
+                adapter.notifyItemRangeRemoved(0, oldList.size());
+            if (!newList.isEmpty())
+                adapter.notifyItemRangeInserted(0, newList.size());
+            return;
+        }
+
+        // a streamed scan only ever appends
+        if (isExtensionOf(newList, oldList)) {
+            list = newList;
+            adapter.notifyItemRangeInserted(oldList.size(), newList.size() - oldList.size());
+            return;
+        }
+
+        getDiffExecutor().execute(() -> {
+            if (generation != current)
+                return;
+
+            // a sort change moves every row, the adapter's stable ids keep
+            // the scroll position across the rebind
+            if (oldList.size() + newList.size() > MAX_DIFF_SIZE || isReorderOf(newList, oldList)) {
+                mainHandler.post(() -> {
+                    if (generation != current)
+                        return;
+
+                    list = newList;
+                    adapter.notifyDataSetChanged();
+                });
+                return;
+            }
+
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new Callback<>(oldList, newList, itemCallback));
+            mainHandler.post(() -> {
+                if (generation != current)
+                    return;
+
+                list = newList;
+                result.dispatchUpdatesTo(adapter);
+            });
+        });
+    }
+
+    // the old list is expected to be a prefix of the new one, the boundary
+    // row rejects anything else at once. Rows of a streamed scan share their
+    // table, comparing them is an identity check rather than field by field
+    private boolean isExtensionOf(List<T> newList, List<T> oldList) {
+        if (newList.size() <= oldList.size() || !isSameItem(oldList, newList, oldList.size() - 1))
+            return false;
+
+        for (int i = 0; i < oldList.size() - 1; i++) {
+            if (!isSameItem(oldList, newList, i))
+                return false;
+        }
+        return true;
+    }
+
+    // the same items in another order, counted by id so duplicates match up
+    private boolean isReorderOf(List<T> newList, List<T> oldList) {
+        if (newList.size() != oldList.size())
+            return false;
+
+        LongHashMap<int[]> counts = new LongHashMap<>(oldList.size());
+        for (T item : oldList) {
+            long id = itemIds.getItemId(item);
+            int[] count = counts.get(id);
+            if (count == null)
+                counts.put(id, new int[]{1});
+            else
+                count[0]++;
+        }
+        for (T item : newList) {
+            int[] count = counts.get(itemIds.getItemId(item));
+            if (count == null || count[0] == 0)
+                return false;
+            count[0]--;
+        }
+        return true;
+    }
+
+    private boolean isSameItem(List<T> oldList, List<T> newList, int position) {
+        T oldItem = oldList.get(position);
+        T newItem = newList.get(position);
+        return itemCallback.areItemsTheSame(oldItem, newItem) && itemCallback.areContentsTheSame(oldItem, newItem);
+    }
+
+    private static class Callback<T> extends DiffUtil.Callback {
+        private final List<T> oldList;
+        private final List<T> newList;
+        private final DiffUtil.ItemCallback<T> itemCallback;
+
+        Callback(List<T> oldList, List<T> newList, DiffUtil.ItemCallback<T> itemCallback) {
+            this.oldList = oldList;
+            this.newList = newList;
+            this.itemCallback = itemCallback;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return itemCallback.areItemsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return itemCallback.areContentsTheSame(oldList.get(oldItemPosition), newList.get(newItemPosition));
+        }
+    }
+
+    public interface ItemIds<T> {
+        long getItemId(T item);
+    }
+}
@@ -3,192 +3,223 @@ package com.atul.musicplayer.helper;
 import com.atul.musicplayer.MPConstants;
 import com.atul.musicplayer.model.Album;
 import com.atul.musicplayer.model.Artist;
+import com.atul.musicplayer.model.LibraryTable;
 import com.atul.musicplayer.model.Music;
+import com.atul.musicplayer.model.RowList;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 public class ListHelper {
 
     public static List<Music> searchMusicByName(List<Music> list, String query) {
+        FuzzyMatcher matcher = new FuzzyMatcher(query);
         List<Music> filterList = new ArrayList<>();
+        IntList scores = new IntList();
         for(Music m: list) {
-            if ((m.title.toLowerCase().contains(query) || m.displayName.toLowerCase().contains(query)) ||
-                    (m.artist.toLowerCase().contains(query) || m.album.toLowerCase().contains(query))) {
+            int score = musicScore(matcher, m);
+            if (score > 0) {
                 filterList.add(m);
+                scores.add(score);
             }
         }
-        return filterList;
+        return ResultRanker.rank(filterList, scores.toArray());
     }
 
-    public static List<Music> sortMusicByDateAdded(List<Music> list, boolean reverse) {
-        List<Music> newList = new ArrayList<>(list);
-        Collections.sort(newList, new SongComparator(MPConstants.SORT_MUSIC_BY_DATE_ADDED));
-
-        if (reverse)
-            Collections.reverse(newList);
+    public static int musicScore(FuzzyMatcher matcher, Music m) {
+        int score = matcher.score(m.getTitle()) * FuzzyMatcher.TITLE;
+        score = Math.max(score, matcher.score(m.getArtist()) * FuzzyMatcher.ARTIST);
+        score = Math.max(score, matcher.score(m.getAlbum()) * FuzzyMatcher.ALBUM);
+        return Math.max(score, matcher.score(m.getDisplayName()) * FuzzyMatcher.FILE_NAME);
+    }
 
-        return newList;
+    public static List<Music> sortMusicByDateAdded(List<Music> list, boolean reverse) {
+        return sortMusic(list, MPConstants.SORT_MUSIC_BY_DATE_ADDED, reverse);
     }
 
     public static List<Music> sortMusic(List<Music> list, boolean reverse) {
-        List<Music> newList = new ArrayList<>(list);
-        Collections.sort(newList, new SongComparator(MPConstants.SORT_MUSIC_BY_TITLE));
-
-        if (reverse)
-            Collections.reverse(newList);
+        return sortMusic(list, MPConstants.SORT_MUSIC_BY_TITLE, reverse);
+    }
 
-        return newList;
+    public static List<Music> sortMusic(List<Music> list, int mode, boolean reverse) {
+        return new ArrayList<>(sortedView(list, musicSortOrder(list, mode), reverse));
     }
 
     public static List<Artist> searchArtistByName(List<Artist> artistList, String query) {
+        FuzzyMatcher matcher = new FuzzyMatcher(query);
         List<Artist> filterList = new ArrayList<>();
+        IntList scores = new IntList();
         for(Artist a : artistList) {
-            if(a.name.toLowerCase().contains(query)) {
+            int score = matcher.score(a.name);
+            if(score > 0) {
                 filterList.add(a);
+                scores.add(score);
             }
         }
-        return filterList;
+        return ResultRanker.rank(filterList, scores.toArray());
     }
 
     public static List<Artist> sortArtistByName(List<Artist> artistList, boolean reverse) {
-        List<Artist> list = new ArrayList<>(artistList);
-        Collections.sort(list, new ArtistComparator(MPConstants.SORT_ARTIST_BY_NAME));
-
-        if (reverse)
-            Collections.reverse(list);
-
-        return list;
+        return sortArtists(artistList, MPConstants.SORT_ARTIST_BY_NAME, reverse);
     }
 
     public static List<Artist> sortArtistBySongs(List<Artist> artistList, boolean reverse) {
-        List<Artist> list = new ArrayList<>(artistList);
-        Collections.sort(list, new ArtistComparator(MPConstants.SORT_ARTIST_BY_SONGS));
-
-        if (reverse)
-            Collections.reverse(list);
-
-        return list;
+        return sortArtists(artistList, MPConstants.SORT_ARTIST_BY_SONGS, reverse);
     }
 
     public static List<Artist> sortArtistByAlbums(List<Artist> artistList, boolean reverse) {
-        List<Artist> list = new ArrayList<>(artistList);
-        Collections.sort(list, new ArtistComparator(MPConstants.SORT_ARTIST_BY_ALBUMS));
-
-        if (reverse)
-            Collections.reverse(list);
+        return sortArtists(artistList, MPConstants.SORT_ARTIST_BY_ALBUMS, reverse);
+    }
 
-        return list;
+    public static List<Artist> sortArtists(List<Artist> artistList, int mode, boolean reverse) {
+        return new ArrayList<>(sortedView(artistList, artistSortOrder(artistList, mode), reverse));
     }
 
     public static List<Album> searchByAlbumName(List<Album> albumList, String query) {
+        FuzzyMatcher matcher = new FuzzyMatcher(query);
         List<Album> filterList = new ArrayList<>();
+        IntList scores = new IntList();
         for(Album a: albumList) {
-            if(a.title.toLowerCase().contains(query) || a.artist.toLowerCase().equals(query)) {
+            int score = Math.max(matcher.score(a.title) * FuzzyMatcher.TITLE,
+                    matcher.score(a.artist) * FuzzyMatcher.ARTIST);
+            if(score > 0) {
                 filterList.add(a);
+                scores.add(score);
             }
         }
-        return filterList;
+        return ResultRanker.rank(filterList, scores.toArray());
     }
 
     public static List<Album> sortAlbumByName(List<Album> albumList, boolean reverse) {
-        List<Album> list = new ArrayList<>(albumList);
-        Collections.sort(list, new AlbumComparator(MPConstants.SORT_ALBUM_BY_TITLE));
-
-        if (reverse)
-            Collections.reverse(list);
-
-        return list;
+        return sortAlbums(albumList, MPConstants.SORT_ALBUM_BY_TITLE, reverse);
     }
 
     public static List<Album> sortAlbumBySongs(List<Album> albumList, boolean reverse) {
-        List<Album> list = new ArrayList<>(albumList);
-        Collections.sort(list, new AlbumComparator(MPConstants.SORT_ALBUM_BY_SONGS));
-
-        if (reverse)
-            Collections.reverse(list);
-
-        return list;
+        return sortAlbums(albumList, MPConstants.SORT_ALBUM_BY_SONGS, reverse);
     }
 
     public static List<Album> sortAlbumByDuration(List<Album> albumList, boolean reverse) {
-        List<Album> list = new ArrayList<>(albumList);
-        Collections.sort(list, new AlbumComparator(MPConstants.SORT_ALBUM_BY_DURATION));
+        return sortAlbums(albumList, MPConstants.SORT_ALBUM_BY_DURATION, reverse);
+    }
 
-        if (reverse)
-            Collections.reverse(list);
+    public static List<Album> sortAlbums(List<Album> albumList, int mode, boolean reverse) {
+        return new ArrayList<>(sortedView(albumList, albumSortOrder(albumList, mode), reverse));
+    }
 
-        return list;
+    // positions of the list in sorted order. Every mode sorts on an int rank,
+    // counts and durations sort largest first like the menus expect
+    public static int[] musicSortOrder(List<Music> list, int mode) {
+        if (mode == MPConstants.SORT_MUSIC_BY_DATE_ADDED) {
+            long[] datesAdded = new long[list.size()];
+            for (int i = 0; i < datesAdded.length; i++)
+                datesAdded[i] = list.get(i).getDateAdded();
+            return CollationRanks.sortedPositions(descendingRanks(datesAdded));
+        }
+        return CollationRanks.sortedPositions(CollationRanks.songTitleRanks(list));
     }
 
-    public static String ifNull(String val) {
-        return val == null ? "" : val;
+    public static int[] albumSortOrder(List<Album> list, int mode) {
+        if (mode == MPConstants.SORT_ALBUM_BY_SONGS) {
+            int[] ranks = new int[list.size()];
+            for (int i = 0; i < ranks.length; i++)
+                ranks[i] = -list.get(i).music.size();
+            return CollationRanks.sortedPositions(ranks);
+        } else if (mode == MPConstants.SORT_ALBUM_BY_DURATION) {
+            long[] durations = new long[list.size()];
+            for (int i = 0; i < durations.length; i++)
+                durations[i] = list.get(i).duration;
+            return CollationRanks.sortedPositions(descendingRanks(durations));
+        }
+        return CollationRanks.sortedPositions(CollationRanks.albumTitleRanks(list));
     }
 
-    public static class SongComparator implements Comparator<Music> {
-        private final int mode;
+    public static int[] artistSortOrder(List<Artist> list, int mode) {
+        if (mode == MPConstants.SORT_ARTIST_BY_SONGS || mode == MPConstants.SORT_ARTIST_BY_ALBUMS) {
+            int[] ranks = new int[list.size()];
+            for (int i = 0; i < ranks.length; i++) {
+                Artist artist = list.get(i);
+                ranks[i] = -(mode == MPConstants.SORT_ARTIST_BY_SONGS ? artist.songCount : artist.albumCount);
+            }
+            return CollationRanks.sortedPositions(ranks);
+        }
+        return CollationRanks.sortedPositions(CollationRanks.artistNameRanks(list));
+    }
 
-        public SongComparator(int mode) {
-            this.mode = mode;
+    // largest value first, equal values share a rank
+    private static int[] descendingRanks(long[] values) {
+        long[] distinct = values.clone();
+        Arrays.sort(distinct);
+        int size = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (size == 0 || distinct[size - 1] != distinct[i])
+                distinct[size++] = distinct[i];
         }
 
-        @Override
-        public int compare(Music m1, Music m2) {
-            if (mode == MPConstants.SORT_MUSIC_BY_TITLE)
-                return m1.title.compareTo(m2.title);
+        int[] ranks = new int[values.length];
+        for (int i = 0; i < ranks.length; i++)
+            ranks[i] = size - 1 - Arrays.binarySearch(distinct, 0, size, values[i]);
+        return ranks;
+    }
 
-            else if (mode == MPConstants.SORT_MUSIC_BY_DATE_ADDED)
-                return Long.compare(m2.dateAdded, m1.dateAdded);
+    // a list in the given order without copying it, reversed by reading the
+    // order back to front
+    // a view of table rows stays one, binds keep reading rows without a Music each
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> sortedView(List<T> list, int[] order, boolean reverse) {
+        if (list instanceof RowList)
+            return (List<T>) new SortedRows((List<Music>) list, order, reverse);
+        return new SortedView<>(list, order, reverse);
+    }
 
-            return 0;
-        }
+    public static String ifNull(String val) {
+        return val == null ? "" : val;
     }
 
-    static class ArtistComparator implements Comparator<Artist> {
-        private final int mode;
+    private static class SortedView<T> extends AbstractList<T> implements RandomAccess {
+        private final List<T> list;
+        private final int[] order;
+        private final boolean reverse;
 
-        public ArtistComparator(int mode) {
-            this.mode = mode;
+        SortedView(List<T> list, int[] order, boolean reverse) {
+            this.list = list;
+            this.order = order;
+            this.reverse = reverse;
         }
 
         @Override
-        public int compare(Artist a1, Artist a2) {
-            if (mode == MPConstants.SORT_ARTIST_BY_NAME)
-                return a1.name.compareTo(a2.name);
-
-            else if (mode == MPConstants.SORT_ARTIST_BY_SONGS)
-                return Integer.compare(a2.songCount, a1.songCount);
+        public T get(int index) {
+            return list.get(position(index));
+        }
 
-            else if (mode == MPConstants.SORT_ARTIST_BY_ALBUMS)
-                return Integer.compare(a2.albumCount, a1.albumCount);
+        @Override
+        public int size() {
+            return order.length;
+        }
 
-            return 0;
+        int position(int index) {
+            return order[reverse ? order.length - 1 - index : index];
         }
     }
 
-    public static class AlbumComparator implements Comparator<Album> {
-        private final int mode;
+    private static class SortedRows extends SortedView<Music> implements RowList {
+        private final RowList rows;
 
-        public AlbumComparator(int mode) {
-            this.mode = mode;
+        SortedRows(List<Music> list, int[] order, boolean reverse) {
+            super(list, order, reverse);
+            rows = (RowList) list;
         }
 
         @Override
-        public int compare(Album a1, Album a2) {
-            if (mode == MPConstants.SORT_ALBUM_BY_TITLE)
-                return a1.title.compareTo(a2.title);
-
-            else if (mode == MPConstants.SORT_ALBUM_BY_SONGS)
-                return Integer.compare(a2.music.size(), a1.music.size());
-
-            else if (mode == MPConstants.SORT_ALBUM_BY_DURATION)
-                return Long.compare(a2.duration, a1.duration);
+        public LibraryTable getTable(int index) {
+            return rows.getTable(position(index));
+        }
 
-            return 0;
+        @Override
+        public int getRow(int index) {
+            return rows.getRow(position(index));
         }
     }
 }
-
-
@@ -1,36 +1,50 @@
 package com.atul.musicplayer.helper;
 
-import android.content.ContentUris;
 import android.content.Context;
+import android.database.CharArrayBuffer;
 import android.database.Cursor;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Color;
 import android.media.MediaExtractor;
 import android.media.MediaFormat;
-import android.net.Uri;
-import android.os.ParcelFileDescriptor;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.provider.MediaStore;
 
 import com.atul.musicplayer.MPConstants;
-import com.atul.musicplayer.R;
+import com.atul.musicplayer.MPPreferences;
+import com.atul.musicplayer.model.LibraryTable;
 import com.atul.musicplayer.model.Music;
 
 import java.io.File;
-import java.io.IOException;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 public class MusicLibraryHelper {
+    private static final int FIRST_SCAN_CHUNK = 500;
 
-    public static List<Music> fetchMusicLibrary(Context context) {
+    public static LibraryTable fetchMusicLibrary(Context context) {
+        return fetchMusicLibrary(context, null, null, null);
+    }
+
+    public static LibraryTable fetchMusicLibrary(Context context, String extraSelection, String[] selectionArgs,
+                                                 CancellationSignal signal) {
+        return fetchMusicLibrary(context, extraSelection, selectionArgs, signal, null);
+    }
+
+    public static LibraryTable fetchMusicLibrary(Context context, String extraSelection, String[] selectionArgs,
+                                                 CancellationSignal signal, ScanListener listener) {
+        LibraryTable.Builder builder = new LibraryTable.Builder(0);
+        fetchMusicLibrary(context, builder, extraSelection, selectionArgs, signal, listener);
+        return builder.build();
+    }
+
+    public static void fetchMusicLibrary(Context context, LibraryTable.Builder builder, String extraSelection,
+                                         String[] selectionArgs, CancellationSignal signal, ScanListener listener) {
         String collection;
-        List<Music> musicList = new ArrayList<>();
 
         if (VersioningHelper.isVersionQ())
             collection = MediaStore.Audio.Media.BUCKET_DISPLAY_NAME;
@@ -52,10 +66,13 @@ public class MusicLibraryHelper {
                 MediaStore.Audio.Media.DATA
         };
 
-        String selection = MediaStore.Audio.Media.IS_MUSIC + " = 1";
+        List<String> args = new ArrayList<>();
+        String selection = buildSelection(context, extraSelection, selectionArgs, args);
         String sortOrder = MediaStore.Audio.Media.DEFAULT_SORT_ORDER;
 
-        Cursor musicCursor = context.getContentResolver().query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, projection, selection, null, sortOrder);
+        Cursor musicCursor = context.getContentResolver().query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, projection, selection, args.toArray(new String[0]), sortOrder, signal);
+        if (musicCursor == null)
+            return;
 
         int artistInd = musicCursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
         int yearInd = musicCursor.getColumnIndexOrThrow(MediaStore.Audio.Media.YEAR);
@@ -69,24 +86,49 @@ public class MusicLibraryHelper {
         int idInd = musicCursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
         int dateModifiedInd = musicCursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_MODIFIED);
         int contentUriInd = musicCursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+        int nextChunk = builder.size() + FIRST_SCAN_CHUNK;
+
+        // artist, album and folder repeat across most rows, they are copied
+        // into reused buffers and only become a String the first time a
+        // value is seen
+        CharArrayBuffer artistBuffer = new CharArrayBuffer(64);
+        CharArrayBuffer albumBuffer = new CharArrayBuffer(64);
+        CharArrayBuffer bucketBuffer = new CharArrayBuffer(64);
 
         while (musicCursor.moveToNext()) {
-            String artist = musicCursor.getString(artistInd);
+            if (signal != null && (musicCursor.getPosition() & 0xff) == 0 && signal.isCanceled()) {
+                musicCursor.close();
+                throw new OperationCanceledException();
+            }
+
+            musicCursor.copyStringToBuffer(artistInd, artistBuffer);
+            musicCursor.copyStringToBuffer(albumInd, albumBuffer);
+            int artistCode = builder.encode(artistBuffer.data, artistBuffer.sizeCopied);
+            int albumCode = builder.encode(albumBuffer.data, albumBuffer.sizeCopied);
+
             String title = musicCursor.getString(titleInd);
             String displayName = musicCursor.getString(displayNameInd);
-            String album = musicCursor.getString(albumInd);
-            String relativePath = musicCursor.getString(relativePathInd);
             String absolutePath = musicCursor.getString(contentUriInd);
 
-            if (VersioningHelper.isVersionQ())
-                relativePath += "/";
-            else if (relativePath != null) {
-                File check = new File(relativePath).getParentFile();
-                if (check != null) {
-                    relativePath = check.getName() + "/";
-                }
+            int relativePathCode;
+            if (VersioningHelper.isVersionQ()) {
+                musicCursor.copyStringToBuffer(relativePathInd, bucketBuffer);
+                int length = bucketBuffer.sizeCopied;
+                if (bucketBuffer.data.length == length)
+                    bucketBuffer.data = Arrays.copyOf(bucketBuffer.data, length + 1);
+                bucketBuffer.data[length] = '/';
+                relativePathCode = builder.encode(bucketBuffer.data, length + 1);
             } else {
-                relativePath = "/";
+                String relativePath = musicCursor.getString(relativePathInd);
+                if (relativePath != null) {
+                    File check = new File(relativePath).getParentFile();
+                    if (check != null) {
+                        relativePath = check.getName() + "/";
+                    }
+                } else {
+                    relativePath = "/";
+                }
+                relativePathCode = builder.encode(relativePath);
             }
 
             int year = musicCursor.getInt(yearInd);
@@ -98,101 +140,149 @@ public class MusicLibraryHelper {
             long duration = musicCursor.getLong(durationInd);
             long albumId = musicCursor.getLong(albumIdInd);
 
-            // skip songs smaller than 20 secs
-            if(duration < MPConstants.TWENTY_SECONDS_IN_MS){
-                continue;
-            }
-
-            Uri albumArt = Uri.parse("");
-            if (!relativePath.contains(album)) {
-                albumArt = ContentUris.withAppendedId(Uri.parse(context.getResources().getString(R.string.album_art_dir)), albumId);
-            }
+            boolean hasAlbumArt = !builder.decode(relativePathCode).contains(builder.decode(albumCode));
 
-            musicList.add(new Music(
-                    artist, title, displayName, album, relativePath, absolutePath,
+            builder.add(
+                    artistCode, title, displayName, albumCode, relativePathCode, absolutePath,
                     year, track, startFrom, dateAdded,
-                    id, duration, albumId, albumArt
-            ));
+                    id, duration, albumId, hasAlbumArt
+            );
+
+            // hand out the rows read so far, each batch twice the size of the last
+            if (listener != null && builder.size() >= nextChunk) {
+                listener.onRowsScanned(builder.snapshot().rows());
+                nextChunk = builder.size() * 2;
+            }
         }
 
         if (!musicCursor.isClosed())
             musicCursor.close();
+    }
+
+    public static long[] fetchMusicIds(Context context, CancellationSignal signal) {
+        String[] projection = new String[]{MediaStore.Audio.Media._ID};
+        List<String> args = new ArrayList<>();
+        String selection = buildSelection(context, null, null, args);
+
+        Cursor idCursor = context.getContentResolver().query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                projection, selection, args.toArray(new String[0]), MediaStore.Audio.Media._ID + " ASC", signal);
+        if (idCursor == null)
+            return new long[0];
 
-        return musicList;
+        long[] ids = new long[idCursor.getCount()];
+        int count = 0;
+        while (idCursor.moveToNext() && count < ids.length) {
+            ids[count++] = idCursor.getLong(0);
+        }
+        idCursor.close();
+
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
     }
 
-    public static Bitmap getThumbnail(Context context, String uri) {
-        try {
-            ParcelFileDescriptor fileDescriptor = context.getContentResolver().openFileDescriptor(Uri.parse(uri), "r");
-            if (uri == null)
-                return null;
+    // songs shorter than 20 secs and excluded folders are dropped by the provider,
+    // so those rows never cross the binder
+    private static String buildSelection(Context context, String extraSelection, String[] extraArgs, List<String> args) {
+        StringBuilder selection = new StringBuilder()
+                .append(MediaStore.Audio.Media.IS_MUSIC).append(" = 1 AND ")
+                .append(MediaStore.Audio.Media.DURATION).append(" >= ?");
+        args.add(String.valueOf(MPConstants.TWENTY_SECONDS_IN_MS));
+
+        List<String> excludedFolders = new ArrayList<>();
+        for (String folder : MPPreferences.getExcludedFolderSet(context)) {
+            String name = folder.endsWith("/") ? folder.substring(0, folder.length() - 1) : folder;
+            if (!name.isEmpty())
+                excludedFolders.add(name);
+        }
 
-            Bitmap bitmap = BitmapFactory.decodeFileDescriptor(fileDescriptor.getFileDescriptor());
-            fileDescriptor.close();
+        if (!excludedFolders.isEmpty()) {
+            if (VersioningHelper.isVersionQ()) {
+                selection.append(" AND (")
+                        .append(MediaStore.Audio.Media.BUCKET_DISPLAY_NAME).append(" IS NULL OR ")
+                        .append(MediaStore.Audio.Media.BUCKET_DISPLAY_NAME).append(" NOT IN (");
+                for (int i = 0; i < excludedFolders.size(); i++) {
+                    selection.append(i == 0 ? "?" : ",?");
+                    args.add(excludedFolders.get(i));
+                }
+                selection.append("))");
+            } else {
+                // folders are matched on the parent directory of the file, the
+                // second pattern keeps files that only sit deeper below that name
+                for (String folder : excludedFolders) {
+                    String pattern = "%/" + escapeLikePattern(folder) + "/%";
+                    selection.append(" AND NOT (")
+                            .append(MediaStore.Audio.Media.DATA).append(" LIKE ? ESCAPE '\\' AND ")
+                            .append(MediaStore.Audio.Media.DATA).append(" NOT LIKE ? ESCAPE '\\')");
+                    args.add(pattern);
+                    args.add(pattern + "/%");
+                }
+            }
+        }
 
-            return bitmap;
-        } catch (IOException e) {
-            return null;
+        if (extraSelection != null) {
+            selection.append(" AND (").append(extraSelection).append(")");
+            if (extraArgs != null)
+                args.addAll(Arrays.asList(extraArgs));
         }
+
+        return selection.toString();
     }
 
-    public static int getDominantColorFromThumbnail(Bitmap bitmap) {
-        if (bitmap == null) return Color.BLACK;
-        Bitmap newBitmap = Bitmap.createScaledBitmap(bitmap, 1, 1, true);
-        final int color = newBitmap.getPixel(0, 0);
-        newBitmap.recycle();
-        return color;
+    private static String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
     }
 
-    public static String formatDuration(long duration) {
-        long seconds = TimeUnit.MILLISECONDS.toSeconds(duration);
-        String second = String.valueOf(seconds);
+    public static String getMediaStoreVersion(Context context) {
+        if (VersioningHelper.isVersionQ())
+            return MediaStore.getVersion(context);
+        return null;
+    }
 
-        if (second.length() == 1)
-            second = "0" + second;
-        else
-            second = second.substring(0, 2);
+    public static long getMediaStoreGeneration(Context context) {
+        if (VersioningHelper.isVersionR())
+            return MediaStore.getGeneration(context, MediaStore.VOLUME_EXTERNAL);
+        return -1;
+    }
 
-        return String.format(Locale.getDefault(), "%02dm %ss",
-                TimeUnit.MILLISECONDS.toMinutes(duration),
-                second
-        );
+    public static String formatDuration(long duration) {
+        return appendDuration(new StringBuilder(8), duration).toString();
     }
 
     public static String formatDurationTimeStyle(long duration) {
+        return appendDurationTimeStyle(new StringBuilder(8), duration).toString();
+    }
+
+    // 03m 07s, seconds are the remainder of the minutes
+    public static StringBuilder appendDuration(StringBuilder builder, long duration) {
         long seconds = TimeUnit.MILLISECONDS.toSeconds(duration);
-        String second = String.valueOf(seconds);
+        appendTwoDigits(builder, seconds / 60).append("m ");
+        return appendTwoDigits(builder, seconds % 60).append('s');
+    }
 
-        if (second.length() == 1)
-            second = "0" + second;
-        else
-            second = second.substring(0, 2);
+    // 03:07
+    public static StringBuilder appendDurationTimeStyle(StringBuilder builder, long duration) {
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(duration);
+        appendTwoDigits(builder, seconds / 60).append(':');
+        return appendTwoDigits(builder, seconds % 60);
+    }
 
-        return String.format(Locale.getDefault(), "%02d:%s",
-                TimeUnit.MILLISECONDS.toMinutes(duration),
-                second
-        );
+    private static StringBuilder appendTwoDigits(StringBuilder builder, long value) {
+        if (value < 10)
+            builder.append('0');
+        return builder.append(value);
     }
 
+    // date added is in seconds since the epoch
     public static String formatDate(long dateAdded) {
-        SimpleDateFormat fromFormat = new SimpleDateFormat("s", Locale.getDefault());
-        SimpleDateFormat toFormat = new SimpleDateFormat("d MMM yyyy", Locale.getDefault());
-
-        try {
-            Date date = fromFormat.parse(String.valueOf(dateAdded));
-            assert date != null;
-            return toFormat.format(date);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-
-        return null;
+        SimpleDateFormat format = new SimpleDateFormat("d MMM yyyy", Locale.getDefault());
+        return format.format(new Date(dateAdded * 1000));
     }
 
     public static int[] getBitSampleRates(Music music) {
         try {
             MediaExtractor extractor = new MediaExtractor();
-            extractor.setDataSource(music.absolutePath);
+            extractor.setDataSource(music.getAbsolutePath());
 
             MediaFormat format = extractor.getTrackFormat(0);
             int sample = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
@@ -212,4 +302,8 @@ public class MusicLibraryHelper {
     private static int normalizeRate(int rate) {
         return (rate > 320) ? 320 : 120;
     }
+
+    public interface ScanListener {
+        void onRowsScanned(List<Music> scanned);
+    }
 }
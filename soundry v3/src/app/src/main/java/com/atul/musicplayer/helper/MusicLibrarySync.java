@@ -0,0 +1,198 @@
+package com.atul.musicplayer.helper;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+
+import com.atul.musicplayer.model.Library;
+import com.atul.musicplayer.model.LibraryTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MusicLibrarySync {
+    // keeps the IN (...) clause well below the sqlite bound variable limit
+    private static final int ID_QUERY_CHUNK = 500;
+    private static MusicLibrarySync instance = null;
+
+    private LibraryTable table = LibraryTable.EMPTY;
+    // sorted copy of the table ids for membership checks
+    private long[] sortedIds = new long[0];
+    private LongHashMap<Integer> rowsById = new LongHashMap<>();
+    private String mediaStoreVersion;
+    private long generation = -1;
+    private long lastDateModified = -1;
+    private boolean synced = false;
+    private volatile Library published;
+
+    public static MusicLibrarySync getInstance() {
+        if (instance == null) {
+            instance = new MusicLibrarySync();
+        }
+        return instance;
+    }
+
+    public synchronized LibraryTable sync(Context context, CancellationSignal signal,
+                                          MusicLibraryHelper.ScanListener listener) {
+        String version = MusicLibraryHelper.getMediaStoreVersion(context);
+
+        if (!synced || !TextUtils.equals(version, mediaStoreVersion))
+            fullSync(context, version, signal, listener);
+        else
+            incrementalSync(context, signal);
+
+        return table;
+    }
+
+    public synchronized boolean restore(LibrarySnapshot snapshot) {
+        if (synced)
+            return false;
+
+        setTable(snapshot.table);
+        mediaStoreVersion = snapshot.mediaStoreVersion;
+        generation = snapshot.generation;
+        lastDateModified = snapshot.lastDateModified;
+        synced = true;
+        return true;
+    }
+
+    public synchronized LibrarySnapshot createSnapshot(LibraryTable table, Library library) {
+        return new LibrarySnapshot(mediaStoreVersion, generation, lastDateModified, table, library);
+    }
+
+    public void setPublishedLibrary(Library library) {
+        published = library;
+    }
+
+    public Library getPublishedLibrary() {
+        return published;
+    }
+
+    private void setTable(LibraryTable table) {
+        this.table = table;
+        sortedIds = new long[table.size()];
+        rowsById = new LongHashMap<>(table.size());
+        for (int row = 0; row < sortedIds.length; row++) {
+            sortedIds[row] = table.getId(row);
+            rowsById.put(sortedIds[row], row);
+        }
+        Arrays.sort(sortedIds);
+    }
+
+    private void fullSync(Context context, String version, CancellationSignal signal,
+                          MusicLibraryHelper.ScanListener listener) {
+        // read the generation before querying, anything changed while the
+        // cursor is walked gets picked up again by the next incremental sync
+        long newGeneration = MusicLibraryHelper.getMediaStoreGeneration(context);
+        LibraryTable scanned = MusicLibraryHelper.fetchMusicLibrary(context, null, null, signal, listener);
+        signal.throwIfCanceled();
+
+        lastDateModified = -1;
+        for (int row = 0; row < scanned.size(); row++)
+            lastDateModified = Math.max(lastDateModified, scanned.getDateAdded(row));
+
+        setTable(scanned);
+        mediaStoreVersion = version;
+        generation = newGeneration;
+        synced = true;
+    }
+
+    private void incrementalSync(Context context, CancellationSignal signal) {
+        long newGeneration = MusicLibraryHelper.getMediaStoreGeneration(context);
+        LibraryTable.Builder changedBuilder = new LibraryTable.Builder(0);
+
+        if (VersioningHelper.isVersionR()) {
+            MusicLibraryHelper.fetchMusicLibrary(context, changedBuilder,
+                    MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?",
+                    new String[]{String.valueOf(generation)}, signal, null);
+        } else {
+            // date modified only has second precision, re-read the last second too
+            MusicLibraryHelper.fetchMusicLibrary(context, changedBuilder,
+                    MediaStore.Audio.Media.DATE_MODIFIED + " >= ?",
+                    new String[]{String.valueOf(lastDateModified)}, signal, null);
+            changedBuilder = dropUnchanged(changedBuilder.build());
+        }
+
+        long[] currentIds = MusicLibraryHelper.fetchMusicIds(context, signal);
+
+        LongHashMap<Integer> changedRows = new LongHashMap<>(changedBuilder.size());
+        LibraryTable changed = changedBuilder.build();
+        for (int row = 0; row < changed.size(); row++)
+            changedRows.put(changed.getId(row), row);
+
+        // rows that slipped past the modification check (e.g. files copied with
+        // their original timestamps) are still picked up through the id set
+        List<Long> missing = new ArrayList<>();
+        for (long id : currentIds) {
+            if (Arrays.binarySearch(sortedIds, id) < 0 && !changedRows.containsKey(id))
+                missing.add(id);
+        }
+
+        for (int start = 0; start < missing.size(); start += ID_QUERY_CHUNK) {
+            List<Long> chunk = missing.subList(start, Math.min(missing.size(), start + ID_QUERY_CHUNK));
+            String[] args = new String[chunk.size()];
+            for (int i = 0; i < args.length; i++)
+                args[i] = String.valueOf(chunk.get(i));
+
+            String placeholders = TextUtils.join(",", Collections.nCopies(args.length, "?"));
+            MusicLibraryHelper.fetchMusicLibrary(context, changedBuilder,
+                    MediaStore.Audio.Media._ID + " IN (" + placeholders + ")", args, signal, null);
+        }
+
+        // the delta is only applied once every query went through, a cancelled
+        // sync leaves the library and the sync point untouched
+        signal.throwIfCanceled();
+
+        if (changed.size() == 0 && missing.isEmpty() && Arrays.equals(currentIds, sortedIds)) {
+            // nothing was added, changed or deleted, keep the table as it is
+            generation = newGeneration;
+            return;
+        }
+
+        if (!missing.isEmpty()) {
+            changed = changedBuilder.build();
+            for (int row = 0; row < changed.size(); row++)
+                changedRows.put(changed.getId(row), row);
+        }
+
+        // rewrite the table in its old order: updated rows replace their old
+        // version in place, deleted rows are dropped and new rows go last
+        LibraryTable.Builder merged = new LibraryTable.Builder(currentIds.length);
+        for (int row = 0; row < table.size(); row++) {
+            long id = table.getId(row);
+            if (Arrays.binarySearch(currentIds, id) < 0)
+                continue;
+
+            Integer changedRow = changedRows.get(id);
+            if (changedRow != null)
+                merged.add(changed, changedRow);
+            else
+                merged.add(table, row);
+        }
+
+        for (int row = 0; row < changed.size(); row++) {
+            long id = changed.getId(row);
+            if (Arrays.binarySearch(sortedIds, id) < 0 && Arrays.binarySearch(currentIds, id) >= 0)
+                merged.add(changed, row);
+            lastDateModified = Math.max(lastDateModified, changed.getDateAdded(row));
+        }
+
+        setTable(merged.build());
+        generation = newGeneration;
+    }
+
+    // a re-read row with the date modified the table already has is the row
+    // from the last sync, not a change
+    private LibraryTable.Builder dropUnchanged(LibraryTable reread) {
+        LibraryTable.Builder changedBuilder = new LibraryTable.Builder(0);
+        for (int row = 0; row < reread.size(); row++) {
+            Integer tableRow = rowsById.get(reread.getId(row));
+            if (tableRow == null || table.getDateAdded(tableRow) != reread.getDateAdded(row))
+                changedBuilder.add(reread, row);
+        }
+        return changedBuilder;
+    }
+}
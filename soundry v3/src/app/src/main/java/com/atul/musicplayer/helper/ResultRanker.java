@@ -0,0 +1,84 @@
+package com.atul.musicplayer.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// moves the best scored matches to the front. Only the top results are
+// selected through a bounded heap, the rest keep their order
+public class ResultRanker {
+    public static final int TOP_RESULTS = 100;
+
+    public static <T> List<T> rank(List<T> matches, int[] scores) {
+        int size = matches.size();
+        int limit = Math.min(TOP_RESULTS, size);
+
+        // min heap of match indices, the root is the weakest of the top results
+        int[] heap = new int[limit];
+        int heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (heapSize < limit) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, scores);
+            } else if (better(scores, i, heap[0])) {
+                heap[0] = i;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+
+        int[] top = new int[heapSize];
+        for (int n = heapSize - 1; n >= 0; n--) {
+            top[n] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, scores);
+        }
+
+        List<T> ranked = new ArrayList<>(size);
+        boolean[] taken = new boolean[size];
+        for (int index : top) {
+            ranked.add(matches.get(index));
+            taken[index] = true;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!taken[i])
+                ranked.add(matches.get(i));
+        }
+        return ranked;
+    }
+
+    // equal scores keep the order of the matches
+    private static boolean better(int[] scores, int a, int b) {
+        return scores[a] != scores[b] ? scores[a] > scores[b] : a < b;
+    }
+
+    private static void siftUp(int[] heap, int index, int[] scores) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(scores, heap[parent], value))
+                break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, int[] scores) {
+        if (size == 0)
+            return;
+
+        int index = 0;
+        int value = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && better(scores, heap[child], heap[child + 1]))
+                child++;
+            if (!better(scores, value, heap[child]))
+                break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
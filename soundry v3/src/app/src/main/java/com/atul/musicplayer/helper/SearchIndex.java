@@ -0,0 +1,312 @@
+package com.atul.musicplayer.helper;
+
+import com.atul.musicplayer.model.LibraryTable;
+import com.atul.musicplayer.model.Music;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// trigram index over a song list. Titles and file names are indexed per list
+// position, artist and album are scored once per dictionary entry
+public class SearchIndex {
+    private static final int GRAM = 3;
+    // two character queries are common while typing, they get their own
+    // postings in a separate key range
+    private static final long BIGRAM = 1L << 48;
+
+    private final List<Music> songs;
+    private final LibraryTable table;
+    private final int[] rowOf;
+    private final LongHashMap<Posting> postings;
+    // list positions per artist or album dictionary code
+    private final int[][] artistPositions;
+    private final int[][] albumPositions;
+
+    private SearchIndex(List<Music> songs, LibraryTable table, int[] rowOf, LongHashMap<Posting> postings,
+                        int[][] artistPositions, int[][] albumPositions) {
+        this.songs = songs;
+        this.table = table;
+        this.rowOf = rowOf;
+        this.postings = postings;
+        this.artistPositions = artistPositions;
+        this.albumPositions = albumPositions;
+    }
+
+    // only lists whose rows all come from the same table can be indexed
+    public static SearchIndex build(List<Music> songs) {
+        if (songs.isEmpty())
+            return null;
+
+        LibraryTable table = songs.get(0).getTable();
+        int[] rowOf = new int[songs.size()];
+        LongHashMap<Posting> postings = new LongHashMap<>(4096);
+
+        for (int position = 0; position < rowOf.length; position++) {
+            Music music = songs.get(position);
+            if (music.getTable() != table)
+                return null;
+
+            int row = music.getRow();
+            rowOf[position] = row;
+            addGrams(postings, table.getTitle(row), position);
+            addGrams(postings, table.getDisplayName(row), position);
+        }
+
+        int dictionarySize = table.getDictionarySize();
+        int[] artistCounts = new int[dictionarySize];
+        int[] albumCounts = new int[dictionarySize];
+        for (int row : rowOf) {
+            artistCounts[table.getArtistCode(row)]++;
+            albumCounts[table.getAlbumCode(row)]++;
+        }
+
+        int[][] artistPositions = new int[dictionarySize][];
+        int[][] albumPositions = new int[dictionarySize][];
+        for (int code = 0; code < dictionarySize; code++) {
+            if (artistCounts[code] > 0)
+                artistPositions[code] = new int[artistCounts[code]];
+            if (albumCounts[code] > 0)
+                albumPositions[code] = new int[albumCounts[code]];
+            artistCounts[code] = 0;
+            albumCounts[code] = 0;
+        }
+
+        for (int position = 0; position < rowOf.length; position++) {
+            int artistCode = table.getArtistCode(rowOf[position]);
+            int albumCode = table.getAlbumCode(rowOf[position]);
+            artistPositions[artistCode][artistCounts[artistCode]++] = position;
+            albumPositions[albumCode][albumCounts[albumCode]++] = position;
+        }
+
+        return new SearchIndex(songs, table, rowOf, postings, artistPositions, albumPositions);
+    }
+
+    public List<Music> getSongs() {
+        return songs;
+    }
+
+    private static long bigram(char c0, char c1) {
+        return BIGRAM | ((long) Character.toLowerCase(c0) << 16) | Character.toLowerCase(c1);
+    }
+
+    private static long gram(char c0, char c1, char c2) {
+        return ((long) Character.toLowerCase(c0) << 32)
+                | ((long) Character.toLowerCase(c1) << 16)
+                | Character.toLowerCase(c2);
+    }
+
+    private static void addGrams(LongHashMap<Posting> postings, String value, int position) {
+        for (int i = 0; i + 2 <= value.length(); i++) {
+            addPosting(postings, bigram(value.charAt(i), value.charAt(i + 1)), position);
+            if (i + GRAM <= value.length())
+                addPosting(postings, gram(value.charAt(i), value.charAt(i + 1), value.charAt(i + 2)), position);
+        }
+    }
+
+    private static void addPosting(LongHashMap<Posting> postings, long key, int position) {
+        Posting posting = postings.get(key);
+        if (posting == null) {
+            posting = new Posting();
+            postings.put(key, posting);
+        }
+        posting.add(position);
+    }
+
+    // query is expected in lower case, as typed into the search views
+    public List<Music> search(String query) {
+        FuzzyMatcher matcher = new FuzzyMatcher(query);
+        int[] scores = new int[rowOf.length];
+
+        for (int code = 0; code < artistPositions.length; code++) {
+            if (artistPositions[code] == null && albumPositions[code] == null)
+                continue;
+
+            int score = matcher.score(table.getString(code));
+            if (score > 0) {
+                addScore(scores, artistPositions[code], score * FuzzyMatcher.ARTIST);
+                addScore(scores, albumPositions[code], score * FuzzyMatcher.ALBUM);
+            }
+        }
+
+        int[] candidates = titleCandidates(matcher);
+        if (candidates == null) {
+            // too short or too many typos allowed to narrow anything down
+            for (int position = 0; position < rowOf.length; position++)
+                scoreTitle(matcher, scores, position);
+        } else {
+            for (int position : candidates)
+                scoreTitle(matcher, scores, position);
+        }
+
+        IntList rows = new IntList();
+        IntList matchScores = new IntList();
+        for (int position = 0; position < scores.length; position++) {
+            if (scores[position] > 0) {
+                rows.add(rowOf[position]);
+                matchScores.add(scores[position]);
+            }
+        }
+        return ResultRanker.rank(table.rows(rows.toArray()), matchScores.toArray());
+    }
+
+    private static void addScore(int[] scores, int[] positions, int score) {
+        if (positions == null)
+            return;
+
+        for (int position : positions) {
+            if (score > scores[position])
+                scores[position] = score;
+        }
+    }
+
+    private void scoreTitle(FuzzyMatcher matcher, int[] scores, int position) {
+        int row = rowOf[position];
+        int score = Math.max(matcher.score(table.getTitle(row)) * FuzzyMatcher.TITLE,
+                matcher.score(table.getDisplayName(row)) * FuzzyMatcher.FILE_NAME);
+        if (score > scores[position])
+            scores[position] = score;
+    }
+
+    // positions whose title or file name could match, null when every
+    // position has to be checked
+    private int[] titleCandidates(FuzzyMatcher matcher) {
+        String query = matcher.getQuery();
+        if (query.length() < 2)
+            return null;
+
+        if (matcher.getTypoBudget() > 0)
+            return typoCandidates(query, matcher.getTypoBudget());
+
+        if (query.length() == 2) {
+            Posting posting = postings.get(bigram(query.charAt(0), query.charAt(1)));
+            return posting == null ? new int[0] : posting.decode();
+        }
+
+        List<Posting> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            Posting posting = postings.get(gram(query.charAt(i), query.charAt(i + 1), query.charAt(i + 2)));
+            if (posting == null)
+                return new int[0];
+            lists.add(posting);
+        }
+
+        // intersect from the rarest trigram up, the candidate set only shrinks
+        Collections.sort(lists, new Comparator<Posting>() {
+            @Override
+            public int compare(Posting p1, Posting p2) {
+                return Integer.compare(p1.count, p2.count);
+            }
+        });
+
+        int[] candidates = lists.get(0).decode();
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++)
+            candidates = lists.get(i).intersect(candidates);
+        return candidates;
+    }
+
+    // an edit breaks at most three bigrams of the query, a field within the
+    // typo budget still holds all but 3 * budget of its distinct bigrams
+    private int[] typoCandidates(String query, int typoBudget) {
+        long[] keys = new long[query.length() - 1];
+        int distinct = 0;
+        for (int i = 0; i + 2 <= query.length(); i++) {
+            long key = bigram(query.charAt(i), query.charAt(i + 1));
+            boolean seen = false;
+            for (int k = 0; k < distinct && !seen; k++)
+                seen = keys[k] == key;
+            if (!seen)
+                keys[distinct++] = key;
+        }
+
+        int threshold = distinct - 3 * typoBudget;
+        if (threshold <= 0)
+            return null;
+
+        int[] counts = new int[rowOf.length];
+        IntList candidates = new IntList();
+        for (int k = 0; k < distinct; k++) {
+            Posting posting = postings.get(keys[k]);
+            if (posting == null)
+                continue;
+
+            for (int position : posting.decode()) {
+                if (++counts[position] == threshold)
+                    candidates.add(position);
+            }
+        }
+        return candidates.toArray();
+    }
+
+    // ascending positions, stored as varint deltas
+    private static class Posting {
+        private byte[] data = new byte[4];
+        private int length;
+        private int last = -1;
+        private int count;
+
+        void add(int position) {
+            if (position == last)
+                return;
+
+            int delta = position - last;
+            last = position;
+            count++;
+
+            if (length + 5 > data.length)
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            while ((delta & ~0x7f) != 0) {
+                data[length++] = (byte) ((delta & 0x7f) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+        }
+
+        int[] decode() {
+            int[] positions = new int[count];
+            int offset = 0;
+            int position = -1;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    delta |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                position += delta;
+                positions[i] = position;
+            }
+            return positions;
+        }
+
+        int[] intersect(int[] candidates) {
+            int[] result = new int[Math.min(count, candidates.length)];
+            int size = 0;
+            int next = 0;
+            int offset = 0;
+            int position = -1;
+
+            for (int i = 0; i < count && next < candidates.length; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    delta |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                position += delta;
+
+                while (next < candidates.length && candidates[next] < position)
+                    next++;
+                if (next < candidates.length && candidates[next] == position)
+                    result[size++] = position;
+            }
+            return Arrays.copyOf(result, size);
+        }
+    }
+}
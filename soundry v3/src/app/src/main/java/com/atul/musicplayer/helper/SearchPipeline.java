@@ -0,0 +1,92 @@
+package com.atul.musicplayer.helper;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// runs the searches of one search view off the main thread. Keystrokes are
+// debounced, every new query bumps the generation so a superseded search is
+// skipped or its result dropped, only the latest query reaches the listener
+public class SearchPipeline<T> {
+    private static final long DEBOUNCE_MS = 120;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ResultListener<T> listener;
+    private final ThreadPoolExecutor executor;
+    private Runnable pending;
+
+    public SearchPipeline(String name, ResultListener<T> listener) {
+        this.listener = listener;
+
+        // same shape as the library scanner, a queued search is replaced by a newer one
+        executor = new ThreadPoolExecutor(
+                1, 1, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+                        runnable.run();
+                    }, name);
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // called on the main thread for every keystroke
+    public void search(SearchSession<T> session, String query) {
+        post(session, query, DEBOUNCE_MS);
+    }
+
+    // a submitted query skips the debounce
+    public void submit(SearchSession<T> session, String query) {
+        post(session, query, 0);
+    }
+
+    public void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            mainHandler.removeCallbacks(pending);
+            pending = null;
+        }
+    }
+
+    private void post(SearchSession<T> session, String query, long delay) {
+        cancel();
+        int current = generation.get();
+
+        // clearing the query needs no search, show the whole list right away
+        if (query.isEmpty()) {
+            listener.onResult(session.getSource());
+            return;
+        }
+
+        // sessions are not thread safe, they are only searched on the worker
+        pending = () -> {
+            pending = null;
+            executor.execute(() -> {
+                if (generation.get() != current)
+                    return;
+
+                List<T> result = session.search(query);
+                mainHandler.post(() -> {
+                    if (generation.get() == current)
+                        listener.onResult(result);
+                });
+            });
+        };
+        mainHandler.postDelayed(pending, delay);
+    }
+
+    public interface ResultListener<T> {
+        void onResult(List<T> result);
+    }
+}
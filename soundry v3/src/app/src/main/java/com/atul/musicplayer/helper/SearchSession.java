@@ -0,0 +1,107 @@
+package com.atul.musicplayer.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// remembers results per query while the user types into one search view. A
+// longer query only searches the matches of its longest cached prefix, put
+// back in source order so only the narrowed set is ranked. Going back with
+// backspace is a cache hit
+public class SearchSession<T> {
+    private static final int MAX_CACHED_QUERIES = 32;
+
+    private final List<T> source;
+    private final Searcher<T> searcher;
+    private final LinkedHashMap<String, Entry<T>> cache = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    };
+    // position of every item in the source, built the first time a query narrows
+    private Map<T, Integer> sourcePositions;
+
+    public SearchSession(List<T> source, Searcher<T> searcher) {
+        this.source = source;
+        this.searcher = searcher;
+    }
+
+    public List<T> getSource() {
+        return source;
+    }
+
+    // matches of a plain query are a subset of the matches of every prefix with
+    // the same typo budget, searching the prefix results again finds all of them
+    public List<T> search(String query) {
+        if (query.isEmpty())
+            return source;
+
+        Entry<T> cached = cache.get(query);
+        if (cached != null)
+            return cached.ranked;
+
+        List<T> candidates = source;
+        int typoBudget = FuzzyMatcher.typoBudget(query.length());
+        boolean narrowable = !SongQuery.hasFilterSyntax(query);
+        for (int length = query.length() - 1; narrowable && length > 0
+                && FuzzyMatcher.typoBudget(length) == typoBudget; length--) {
+            Entry<T> ancestor = cache.get(query.substring(0, length));
+            if (ancestor != null) {
+                candidates = getMatches(ancestor);
+                break;
+            }
+        }
+
+        List<T> result = searcher.search(candidates, query);
+
+        cache.put(query, new Entry<>(result));
+        return result;
+    }
+
+    // the ranked results of an entry in source order, sorted once per entry
+    private List<T> getMatches(Entry<T> entry) {
+        if (entry.matches != null)
+            return entry.matches;
+
+        if (sourcePositions == null) {
+            sourcePositions = new HashMap<>(source.size() * 2);
+            for (int i = 0; i < source.size(); i++) {
+                T item = source.get(i);
+                if (!sourcePositions.containsKey(item))
+                    sourcePositions.put(item, i);
+            }
+        }
+
+        // source position in the high bits, ranked index in the low ones
+        List<T> ranked = entry.ranked;
+        long[] keys = new long[ranked.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Integer position = sourcePositions.get(ranked.get(i));
+            keys[i] = (long) (position == null ? Integer.MAX_VALUE : position) << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        List<T> matches = new ArrayList<>(keys.length);
+        for (long key : keys)
+            matches.add(ranked.get((int) key));
+        entry.matches = matches;
+        return matches;
+    }
+
+    private static class Entry<T> {
+        final List<T> ranked;
+        List<T> matches;
+
+        Entry(List<T> ranked) {
+            this.ranked = ranked;
+        }
+    }
+
+    public interface Searcher<T> {
+        List<T> search(List<T> source, String query);
+    }
+}
@@ -0,0 +1,364 @@
+package com.atul.musicplayer.helper;
+
+import com.atul.musicplayer.model.LibraryTable;
+import com.atul.musicplayer.model.Music;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// search box queries like `artist:radiohead year>=2000 dur<5m folder:downloads`.
+// Field terms compile into filters over the table columns, whatever is left
+// is searched as plain text
+public class SongQuery {
+    private static final int EQUAL = 0;
+    private static final int LESS = 1;
+    private static final int LESS_EQUAL = 2;
+    private static final int GREATER = 3;
+    private static final int GREATER_EQUAL = 4;
+
+    // filters run cheapest first, a failing number check skips the strings
+    private static final int COST_NUMBER = 0;
+    private static final int COST_CODE = 1;
+    private static final int COST_STRING = 2;
+
+    private final List<Filter> filters;
+    private final String text;
+
+    private SongQuery(List<Filter> filters, String text) {
+        this.filters = filters;
+        this.text = text;
+    }
+
+    // cheap check for the search session, a filter query never narrows the
+    // results of its prefix: `year<2` matches tracks `year<20` does not
+    public static boolean hasFilterSyntax(String query) {
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == ':' || c == '<' || c == '>' || c == '=')
+                return true;
+        }
+        return false;
+    }
+
+    // query is expected in lower case, as typed into the search views
+    public static SongQuery parse(String query) {
+        List<Filter> filters = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+
+        for (String term : split(query)) {
+            int operatorStart = -1;
+            for (int i = 0; i < term.length() && operatorStart < 0; i++) {
+                char c = term.charAt(i);
+                if (c == ':' || c == '<' || c == '>' || c == '=')
+                    operatorStart = i;
+            }
+
+            Filter filter = null;
+            boolean isField = false;
+            if (operatorStart > 0) {
+                String field = term.substring(0, operatorStart);
+                int operatorEnd = operatorStart + 1;
+                if (operatorEnd < term.length() && term.charAt(operatorEnd) == '=')
+                    operatorEnd++;
+                String operator = term.substring(operatorStart, operatorEnd);
+                String value = unquote(term.substring(operatorEnd));
+
+                isField = isField(field);
+                if (isField && !value.isEmpty())
+                    filter = compile(field, operator, value);
+            }
+
+            if (filter != null)
+                filters.add(filter);
+            else if (!isField) {
+                // a field still being typed, like `year>=`, filters nothing
+                if (text.length() > 0)
+                    text.append(' ');
+                text.append(unquote(term));
+            }
+        }
+
+        Collections.sort(filters, new Comparator<Filter>() {
+            @Override
+            public int compare(Filter f1, Filter f2) {
+                return Integer.compare(f1.cost(), f2.cost());
+            }
+        });
+        return new SongQuery(filters, text.toString());
+    }
+
+    public boolean hasFilters() {
+        return !filters.isEmpty();
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<Music> filter(List<Music> songs) {
+        List<Music> filtered = new ArrayList<>();
+        for (Music music : songs) {
+            LibraryTable table = music.getTable();
+            int row = music.getRow();
+
+            boolean matches = true;
+            for (int i = 0; i < filters.size() && matches; i++)
+                matches = filters.get(i).matches(table, row);
+            if (matches)
+                filtered.add(music);
+        }
+        return filtered;
+    }
+
+    // whitespace separated terms, double quotes keep spaces in a value
+    private static List<String> split(String query) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '"')
+                quoted = !quoted;
+            if (Character.isWhitespace(c) && !quoted) {
+                if (term.length() > 0)
+                    terms.add(term.toString());
+                term.setLength(0);
+            } else {
+                term.append(c);
+            }
+        }
+        if (term.length() > 0)
+            terms.add(term.toString());
+        return terms;
+    }
+
+    private static String unquote(String value) {
+        return value.replace("\"", "");
+    }
+
+    private static boolean isField(String field) {
+        switch (field) {
+            case "artist":
+            case "album":
+            case "folder":
+            case "title":
+            case "year":
+            case "track":
+            case "dur":
+            case "duration":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int parseOperator(String operator) {
+        switch (operator) {
+            case "<":
+                return LESS;
+            case "<=":
+                return LESS_EQUAL;
+            case ">":
+                return GREATER;
+            case ">=":
+                return GREATER_EQUAL;
+            default:
+                return EQUAL;
+        }
+    }
+
+    // null when the value does not parse, the term is then ignored
+    private static Filter compile(String field, String operator, String value) {
+        switch (field) {
+            case "artist":
+                return new CodeFilter(value) {
+                    @Override
+                    int code(LibraryTable table, int row) {
+                        return table.getArtistCode(row);
+                    }
+                };
+            case "album":
+                return new CodeFilter(value) {
+                    @Override
+                    int code(LibraryTable table, int row) {
+                        return table.getAlbumCode(row);
+                    }
+                };
+            case "folder":
+                return new CodeFilter(value) {
+                    @Override
+                    int code(LibraryTable table, int row) {
+                        return table.getRelativePathCode(row);
+                    }
+                };
+            case "title":
+                return new TitleFilter(value);
+            case "year": {
+                long year = parseNumber(value);
+                return year < 0 ? null : new NumberFilter(parseOperator(operator), year) {
+                    @Override
+                    long value(LibraryTable table, int row) {
+                        return table.getYear(row);
+                    }
+                };
+            }
+            case "track": {
+                long track = parseNumber(value);
+                return track < 0 ? null : new NumberFilter(parseOperator(operator), track) {
+                    @Override
+                    long value(LibraryTable table, int row) {
+                        return table.getTrack(row);
+                    }
+                };
+            }
+            default: {
+                // `dur:3:30` is any length within that second, `dur=4m` within that minute
+                long duration = parseDuration(value);
+                return duration < 0 ? null : new NumberFilter(parseOperator(operator), duration, durationUnit(value)) {
+                    @Override
+                    long value(LibraryTable table, int row) {
+                        return table.getDuration(row);
+                    }
+                };
+            }
+        }
+    }
+
+    private static long parseNumber(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // milliseconds from `90`, `90s`, `5m`, `1h` or `3:30`
+    private static long parseDuration(String value) {
+        int colon = value.indexOf(':');
+        if (colon >= 0) {
+            long minutes = parseNumber(value.substring(0, colon));
+            long seconds = parseNumber(value.substring(colon + 1));
+            return minutes < 0 || seconds < 0 ? -1 : (minutes * 60 + seconds) * 1000;
+        }
+
+        long unit = durationUnit(value);
+        char last = value.charAt(value.length() - 1);
+        if (last == 's' || last == 'm' || last == 'h')
+            value = value.substring(0, value.length() - 1);
+
+        long amount = parseNumber(value);
+        return amount < 0 ? -1 : amount * unit;
+    }
+
+    // milliseconds in the smallest unit the value was typed in
+    private static long durationUnit(String value) {
+        char last = value.charAt(value.length() - 1);
+        return last == 'm' ? 60 * 1000 : last == 'h' ? 60 * 60 * 1000 : 1000;
+    }
+
+    private static boolean containsIgnoreCase(String value, String query) {
+        for (int i = 0; i <= value.length() - query.length(); i++) {
+            if (value.regionMatches(true, i, query, 0, query.length()))
+                return true;
+        }
+        return false;
+    }
+
+    private interface Filter {
+        boolean matches(LibraryTable table, int row);
+
+        int cost();
+    }
+
+    private abstract static class NumberFilter implements Filter {
+        private final int operator;
+        private final long operand;
+        // equality holds anywhere within one step of this size
+        private final long precision;
+
+        NumberFilter(int operator, long operand) {
+            this(operator, operand, 1);
+        }
+
+        NumberFilter(int operator, long operand, long precision) {
+            this.operator = operator;
+            this.operand = operand;
+            this.precision = precision;
+        }
+
+        abstract long value(LibraryTable table, int row);
+
+        @Override
+        public boolean matches(LibraryTable table, int row) {
+            long value = value(table, row);
+            switch (operator) {
+                case LESS:
+                    return value < operand;
+                case LESS_EQUAL:
+                    return value <= operand;
+                case GREATER:
+                    return value > operand;
+                case GREATER_EQUAL:
+                    return value >= operand;
+                default:
+                    return value / precision == operand / precision;
+            }
+        }
+
+        @Override
+        public int cost() {
+            return COST_NUMBER;
+        }
+    }
+
+    // artist, album and folder values repeat across rows, each dictionary
+    // entry is matched once and rows only look their code up
+    private abstract static class CodeFilter implements Filter {
+        private final String value;
+        private LibraryTable table;
+        private boolean[] matchingCodes;
+
+        CodeFilter(String value) {
+            this.value = value;
+        }
+
+        abstract int code(LibraryTable table, int row);
+
+        @Override
+        public boolean matches(LibraryTable table, int row) {
+            if (table != this.table) {
+                this.table = table;
+                matchingCodes = new boolean[table.getDictionarySize()];
+                for (int code = 0; code < matchingCodes.length; code++)
+                    matchingCodes[code] = containsIgnoreCase(table.getString(code), value);
+            }
+            return matchingCodes[code(table, row)];
+        }
+
+        @Override
+        public int cost() {
+            return COST_CODE;
+        }
+    }
+
+    private static class TitleFilter implements Filter {
+        private final String value;
+
+        TitleFilter(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean matches(LibraryTable table, int row) {
+            return containsIgnoreCase(table.getTitle(row), value);
+        }
+
+        @Override
+        public int cost() {
+            return COST_STRING;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.atul.musicplayer.helper;
+
+import java.util.Arrays;
+
+// hands out dense int codes for strings, equal values share one instance
+public class StringDictionary {
+    private String[] values;
+    private int[] hashes;
+    // open addressing over code + 1, zero marks a free slot
+    private int[] slots;
+    private int size;
+
+    public StringDictionary() {
+        this(64);
+    }
+
+    public StringDictionary(int expectedSize) {
+        values = new String[Math.max(16, expectedSize)];
+        hashes = new int[values.length];
+        slots = new int[Integer.highestOneBit(values.length * 2 - 1) << 1];
+    }
+
+    private StringDictionary(StringDictionary other) {
+        values = Arrays.copyOf(other.values, other.size);
+        hashes = Arrays.copyOf(other.hashes, other.size);
+        slots = other.slots.clone();
+        size = other.size;
+    }
+
+    private static int hash(char[] chars, int length) {
+        // same as String.hashCode, so both lookups land on the same slot
+        int h = 0;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + chars[i];
+        return h;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String value, char[] chars, int length) {
+        if (value.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[i])
+                return false;
+        }
+        return true;
+    }
+
+    public int encode(String value) {
+        int code = codeOf(value);
+        return code >= 0 ? code : insert(value, value.hashCode());
+    }
+
+    // looks the characters up without allocating, a String is only created
+    // the first time a value is seen
+    public int encode(char[] chars, int length) {
+        int h = hash(chars, length);
+        int mask = slots.length - 1;
+        for (int index = spread(h) & mask; slots[index] != 0; index = (index + 1) & mask) {
+            int code = slots[index] - 1;
+            if (hashes[code] == h && matches(values[code], chars, length))
+                return code;
+        }
+        return insert(new String(chars, 0, length), h);
+    }
+
+    public int codeOf(String value) {
+        int h = value.hashCode();
+        int mask = slots.length - 1;
+        for (int index = spread(h) & mask; slots[index] != 0; index = (index + 1) & mask) {
+            int code = slots[index] - 1;
+            if (hashes[code] == h && values[code].equals(value))
+                return code;
+        }
+        return -1;
+    }
+
+    private int insert(String value, int h) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        values[size] = value;
+        hashes[size] = h;
+        size++;
+
+        if (size * 2 > slots.length)
+            rehash(slots.length * 2);
+        else
+            place(size - 1);
+        return size - 1;
+    }
+
+    private void place(int code) {
+        int mask = slots.length - 1;
+        int index = spread(hashes[code]) & mask;
+        while (slots[index] != 0)
+            index = (index + 1) & mask;
+        slots[index] = code + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int code = 0; code < size; code++)
+            place(code);
+    }
+
+    public String get(int code) {
+        return values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public StringDictionary copy() {
+        return new StringDictionary(this);
+    }
+}
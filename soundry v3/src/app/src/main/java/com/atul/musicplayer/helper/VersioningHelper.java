@@ -6,4 +6,8 @@ public class VersioningHelper {
     public static boolean isVersionQ() {
         return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
     }
+
+    public static boolean isVersionR() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+    }
 }
@@ -0,0 +1,64 @@
+package com.atul.musicplayer.model;
+
+import com.atul.musicplayer.helper.ListHelper;
+import com.atul.musicplayer.helper.LongHashMap;
+import com.atul.musicplayer.helper.SearchIndex;
+
+import java.util.List;
+
+public class Library {
+    public final List<Music> songs;
+    public final List<Album> albums;
+    public final List<Artist> artists;
+    public final List<Folder> folders;
+    private final LongHashMap<Album> albumsById;
+    private SearchIndex songIndex;
+    private boolean songIndexBuilt = false;
+    // sort orders per sort mode, a library never changes so they never go stale
+    private final int[][] songOrders = new int[2][];
+    private final int[][] albumOrders = new int[3][];
+
+    public Library(List<Music> songs, List<Album> albums, List<Artist> artists, List<Folder> folders) {
+        this.songs = songs;
+        this.albums = albums;
+        this.artists = artists;
+        this.folders = folders;
+
+        albumsById = new LongHashMap<>(albums.size());
+        for (Album album : albums)
+            albumsById.put(album.id, album);
+    }
+
+    public Album getAlbum(long id) {
+        return albumsById.get(id);
+    }
+
+    // built once per library, null when the songs cannot be indexed
+    public synchronized SearchIndex getSongIndex() {
+        if (!songIndexBuilt) {
+            songIndex = SearchIndex.build(songs);
+            songIndexBuilt = true;
+        }
+        return songIndex;
+    }
+
+    public List<Music> getSortedSongs(int mode, boolean reverse) {
+        return ListHelper.sortedView(songs, getSongOrder(mode), reverse);
+    }
+
+    public List<Album> getSortedAlbums(int mode, boolean reverse) {
+        return ListHelper.sortedView(albums, getAlbumOrder(mode), reverse);
+    }
+
+    private synchronized int[] getSongOrder(int mode) {
+        if (songOrders[mode] == null)
+            songOrders[mode] = ListHelper.musicSortOrder(songs, mode);
+        return songOrders[mode];
+    }
+
+    private synchronized int[] getAlbumOrder(int mode) {
+        if (albumOrders[mode] == null)
+            albumOrders[mode] = ListHelper.albumSortOrder(albums, mode);
+        return albumOrders[mode];
+    }
+}
@@ -0,0 +1,365 @@
+package com.atul.musicplayer.model;
+
+import com.atul.musicplayer.helper.AlbumArtHelper;
+import com.atul.musicplayer.helper.CollationRanks;
+import com.atul.musicplayer.helper.DisplayStrings;
+import com.atul.musicplayer.helper.ListHelper;
+import com.atul.musicplayer.helper.StringDictionary;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+
+// tracks are stored column by column, a Music is only a view on one row
+public class LibraryTable {
+    public static final LibraryTable EMPTY = new Builder(0).build();
+
+    private final int size;
+    private final long[] ids;
+    private final long[] durations;
+    private final long[] albumIds;
+    private final long[] datesAdded;
+    private final int[] years;
+    private final int[] tracks;
+    private final int[] startFroms;
+
+    // titles, file names and paths are unique per track, the rest repeats
+    // a lot and is stored once in the dictionary
+    private final String[] titles;
+    private final String[] displayNames;
+    private final String[] absolutePaths;
+    private final int[] artistCodes;
+    private final int[] albumCodes;
+    private final int[] relativePathCodes;
+    private final StringDictionary dictionary;
+    // the art uri only depends on the album id, rows just flag whether they have one
+    private final boolean[] albumArt;
+    // the builder the table came from, its rows never change once added
+    private final Object origin;
+    private CollationRanks collationRanks;
+    private DisplayStrings displayStrings;
+
+    private LibraryTable(Builder builder, boolean shared) {
+        size = builder.size;
+        origin = builder.origin;
+        dictionary = builder.dictionary.copy();
+        if (shared) {
+            // the builder only appends past size, what this table reads stays as it is
+            ids = builder.ids;
+            durations = builder.durations;
+            albumIds = builder.albumIds;
+            datesAdded = builder.datesAdded;
+            years = builder.years;
+            tracks = builder.tracks;
+            startFroms = builder.startFroms;
+            titles = builder.titles;
+            displayNames = builder.displayNames;
+            absolutePaths = builder.absolutePaths;
+            artistCodes = builder.artistCodes;
+            albumCodes = builder.albumCodes;
+            relativePathCodes = builder.relativePathCodes;
+            albumArt = builder.albumArt;
+            return;
+        }
+
+        ids = Arrays.copyOf(builder.ids, size);
+        durations = Arrays.copyOf(builder.durations, size);
+        albumIds = Arrays.copyOf(builder.albumIds, size);
+        datesAdded = Arrays.copyOf(builder.datesAdded, size);
+        years = Arrays.copyOf(builder.years, size);
+        tracks = Arrays.copyOf(builder.tracks, size);
+        startFroms = Arrays.copyOf(builder.startFroms, size);
+        titles = Arrays.copyOf(builder.titles, size);
+        displayNames = Arrays.copyOf(builder.displayNames, size);
+        absolutePaths = Arrays.copyOf(builder.absolutePaths, size);
+        artistCodes = Arrays.copyOf(builder.artistCodes, size);
+        albumCodes = Arrays.copyOf(builder.albumCodes, size);
+        relativePathCodes = Arrays.copyOf(builder.relativePathCodes, size);
+        albumArt = Arrays.copyOf(builder.albumArt, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // true when the row reads the same in both tables, which holds for all
+    // rows two tables of one builder have in common
+    public boolean sharesRow(LibraryTable other, int row) {
+        return other == this || (other.origin == origin && row < size && row < other.size);
+    }
+
+    public Music get(int row) {
+        return new Music(this, row);
+    }
+
+    public List<Music> rows() {
+        return new Rows(this, null, size);
+    }
+
+    public List<Music> rows(int[] rows) {
+        return new Rows(this, rows, rows.length);
+    }
+
+    public long getId(int row) {
+        return ids[row];
+    }
+
+    public long getDuration(int row) {
+        return durations[row];
+    }
+
+    public long getAlbumId(int row) {
+        return albumIds[row];
+    }
+
+    public long getDateAdded(int row) {
+        return datesAdded[row];
+    }
+
+    public int getYear(int row) {
+        return years[row];
+    }
+
+    public int getTrack(int row) {
+        return tracks[row];
+    }
+
+    public int getStartFrom(int row) {
+        return startFroms[row];
+    }
+
+    public String getTitle(int row) {
+        return titles[row];
+    }
+
+    public String getDisplayName(int row) {
+        return displayNames[row];
+    }
+
+    public String getAbsolutePath(int row) {
+        return absolutePaths[row];
+    }
+
+    public String getArtist(int row) {
+        return dictionary.get(artistCodes[row]);
+    }
+
+    public String getAlbum(int row) {
+        return dictionary.get(albumCodes[row]);
+    }
+
+    public String getRelativePath(int row) {
+        return dictionary.get(relativePathCodes[row]);
+    }
+
+    public boolean hasAlbumArt(int row) {
+        return albumArt[row];
+    }
+
+    public String getAlbumArt(int row) {
+        return albumArt[row] ? AlbumArtHelper.getAlbumArtUri(albumIds[row]) : "";
+    }
+
+    // equal artist, album and folder values share a code, grouping can
+    // compare these instead of the strings
+    public int getArtistCode(int row) {
+        return artistCodes[row];
+    }
+
+    public int getAlbumCode(int row) {
+        return albumCodes[row];
+    }
+
+    public int getRelativePathCode(int row) {
+        return relativePathCodes[row];
+    }
+
+    public int getDictionarySize() {
+        return dictionary.size();
+    }
+
+    public String getString(int code) {
+        return dictionary.get(code);
+    }
+
+    public int codeOf(String value) {
+        return dictionary.codeOf(value);
+    }
+
+    // formatted once per table, again only if the locale or time zone changes
+    public synchronized DisplayStrings getDisplayStrings() {
+        if (displayStrings == null || !displayStrings.isFor(Locale.getDefault()))
+            displayStrings = new DisplayStrings(this);
+        return displayStrings;
+    }
+
+    // collated once per table, again only if the locale changes
+    public synchronized CollationRanks getCollationRanks() {
+        Locale locale = Locale.getDefault();
+        if (collationRanks == null || !collationRanks.isFor(locale))
+            collationRanks = CollationRanks.build(this);
+        return collationRanks;
+    }
+
+    private static class Rows extends AbstractList<Music> implements RandomAccess, RowList {
+        private final LibraryTable table;
+        private final int[] rows;
+        private final int size;
+
+        Rows(LibraryTable table, int[] rows, int size) {
+            this.table = table;
+            this.rows = rows;
+            this.size = size;
+        }
+
+        @Override
+        public Music get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return new Music(table, getRow(index));
+        }
+
+        @Override
+        public LibraryTable getTable(int index) {
+            return table;
+        }
+
+        @Override
+        public int getRow(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return rows == null ? index : rows[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    public static class Builder {
+        private final StringDictionary dictionary = new StringDictionary();
+        private final Object origin = new Object();
+        private int size;
+        private long[] ids;
+        private long[] durations;
+        private long[] albumIds;
+        private long[] datesAdded;
+        private int[] years;
+        private int[] tracks;
+        private int[] startFroms;
+        private String[] titles;
+        private String[] displayNames;
+        private String[] absolutePaths;
+        private int[] artistCodes;
+        private int[] albumCodes;
+        private int[] relativePathCodes;
+        private boolean[] albumArt;
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            ids = new long[capacity];
+            durations = new long[capacity];
+            albumIds = new long[capacity];
+            datesAdded = new long[capacity];
+            years = new int[capacity];
+            tracks = new int[capacity];
+            startFroms = new int[capacity];
+            titles = new String[capacity];
+            displayNames = new String[capacity];
+            absolutePaths = new String[capacity];
+            artistCodes = new int[capacity];
+            albumCodes = new int[capacity];
+            relativePathCodes = new int[capacity];
+            albumArt = new boolean[capacity];
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            albumIds = Arrays.copyOf(albumIds, capacity);
+            datesAdded = Arrays.copyOf(datesAdded, capacity);
+            years = Arrays.copyOf(years, capacity);
+            tracks = Arrays.copyOf(tracks, capacity);
+            startFroms = Arrays.copyOf(startFroms, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            displayNames = Arrays.copyOf(displayNames, capacity);
+            absolutePaths = Arrays.copyOf(absolutePaths, capacity);
+            artistCodes = Arrays.copyOf(artistCodes, capacity);
+            albumCodes = Arrays.copyOf(albumCodes, capacity);
+            relativePathCodes = Arrays.copyOf(relativePathCodes, capacity);
+            albumArt = Arrays.copyOf(albumArt, capacity);
+        }
+
+        public int encode(String value) {
+            return dictionary.encode(ListHelper.ifNull(value));
+        }
+
+        public int encode(char[] chars, int length) {
+            return dictionary.encode(chars, length);
+        }
+
+        public String decode(int code) {
+            return dictionary.get(code);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void add(String artist, String title, String displayName, String album, String relativePath, String absolutePath,
+                        int year, int track, int startFrom, long dateAdded,
+                        long id, long duration, long albumId,
+                        boolean hasAlbumArt) {
+            add(encode(artist), title, displayName, encode(album), encode(relativePath), absolutePath,
+                    year, track, startFrom, dateAdded,
+                    id, duration, albumId,
+                    hasAlbumArt);
+        }
+
+        public void add(int artistCode, String title, String displayName, int albumCode, int relativePathCode, String absolutePath,
+                        int year, int track, int startFrom, long dateAdded,
+                        long id, long duration, long albumId,
+                        boolean hasAlbumArt) {
+            if (size == ids.length)
+                grow();
+
+            ids[size] = id;
+            durations[size] = duration;
+            albumIds[size] = albumId;
+            datesAdded[size] = dateAdded;
+            years[size] = year;
+            tracks[size] = track;
+            startFroms[size] = startFrom;
+            titles[size] = ListHelper.ifNull(title);
+            displayNames[size] = ListHelper.ifNull(displayName);
+            absolutePaths[size] = ListHelper.ifNull(absolutePath);
+            artistCodes[size] = artistCode;
+            albumCodes[size] = albumCode;
+            relativePathCodes[size] = relativePathCode;
+            albumArt[size] = hasAlbumArt;
+            size++;
+        }
+
+        public void add(LibraryTable table, int row) {
+            add(table.getArtist(row), table.getTitle(row), table.getDisplayName(row), table.getAlbum(row),
+                    table.getRelativePath(row), table.getAbsolutePath(row),
+                    table.getYear(row), table.getTrack(row), table.getStartFrom(row), table.getDateAdded(row),
+                    table.getId(row), table.getDuration(row), table.getAlbumId(row),
+                    table.hasAlbumArt(row));
+        }
+
+        public LibraryTable build() {
+            return new LibraryTable(this, false);
+        }
+
+        // the rows added so far without copying the columns, for publishing
+        // a scan in progress. The builder stays usable
+        public LibraryTable snapshot() {
+            return new LibraryTable(this, true);
+        }
+    }
+}
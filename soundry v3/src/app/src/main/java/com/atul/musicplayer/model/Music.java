@@ -1,120 +1,129 @@
 package com.atul.musicplayer.model;
 
-import android.net.Uri;
-import android.os.Parcel;
-import android.os.Parcelable;
-
 import androidx.annotation.NonNull;
 
-import com.atul.musicplayer.helper.ListHelper;
-
-
-public class Music implements Parcelable {
-
-    public static final Creator<Music> CREATOR = new Creator<Music>() {
-        @Override
-        public Music createFromParcel(Parcel in) {
-            return new Music(in);
-        }
-
-        @Override
-        public Music[] newArray(int size) {
-            return new Music[size];
-        }
-    };
-    public String artist;
-    public String title;
-    public String displayName;
-    public String album;
-    public String relativePath;
-    public String absolutePath;
-    public String albumArt;
-    public int year;
-    public int track;
-    public int startFrom;
-    public long dateAdded;
-    public long id;
-    public long duration;
-    public long albumId;
-
-    public Music(String artist, String title, String displayName, String album, String relativePath, String absolutePath,
-                 int year, int track, int startFrom, long dateAdded,
-                 long id, long duration, long albumId,
-                 Uri albumArt) {
-        this.artist = ListHelper.ifNull(artist);
-        this.title = ListHelper.ifNull(title);
-        this.displayName = ListHelper.ifNull(displayName);
-        this.album = ListHelper.ifNull(album);
-        this.relativePath = ListHelper.ifNull(relativePath);
-        this.absolutePath = ListHelper.ifNull(absolutePath);
-        this.year = year;
-        this.track = track;
-        this.startFrom = startFrom;
-        this.dateAdded = dateAdded;
-        this.id = id;
-        this.duration = duration;
-        this.albumId = albumId;
-        this.albumArt = albumArt.toString();
-    }
-
-    protected Music(Parcel in) {
-        artist = in.readString();
-        title = in.readString();
-        displayName = in.readString();
-        album = in.readString();
-        relativePath = in.readString();
-        absolutePath = in.readString();
-        albumArt = in.readString();
-        year = in.readInt();
-        track = in.readInt();
-        startFrom = in.readInt();
-        dateAdded = in.readLong();
-        id = in.readLong();
-        duration = in.readLong();
-        albumId = in.readLong();
+
+public class Music {
+
+    private final LibraryTable table;
+    private final int row;
+
+    public Music(LibraryTable table, int row) {
+        this.table = table;
+        this.row = row;
     }
 
-    @NonNull
+    public LibraryTable getTable() {
+        return table;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public String getArtist() {
+        return table.getArtist(row);
+    }
+
+    public String getTitle() {
+        return table.getTitle(row);
+    }
+
+    public String getDisplayName() {
+        return table.getDisplayName(row);
+    }
+
+    public String getAlbum() {
+        return table.getAlbum(row);
+    }
+
+    public String getRelativePath() {
+        return table.getRelativePath(row);
+    }
+
+    public String getAbsolutePath() {
+        return table.getAbsolutePath(row);
+    }
+
+    public int getArtistCode() {
+        return table.getArtistCode(row);
+    }
+
+    public int getAlbumCode() {
+        return table.getAlbumCode(row);
+    }
+
+    public int getRelativePathCode() {
+        return table.getRelativePathCode(row);
+    }
+
+    public String getAlbumArt() {
+        return table.getAlbumArt(row);
+    }
+
+    public boolean hasAlbumArt() {
+        return table.hasAlbumArt(row);
+    }
+
+    public int getYear() {
+        return table.getYear(row);
+    }
+
+    public int getTrack() {
+        return table.getTrack(row);
+    }
+
+    public int getStartFrom() {
+        return table.getStartFrom(row);
+    }
+
+    public long getDateAdded() {
+        return table.getDateAdded(row);
+    }
+
+    public long getId() {
+        return table.getId(row);
+    }
+
+    public long getDuration() {
+        return table.getDuration(row);
+    }
+
+    public long getAlbumId() {
+        return table.getAlbumId(row);
+    }
+
+    // views are created on demand, two views of the same track are equal
     @Override
-    public String toString() {
-        return "Music{" +
-                "artist='" + artist + '\'' +
-                ", title='" + title + '\'' +
-                ", displayName='" + displayName + '\'' +
-                ", album='" + album + '\'' +
-                ", relativePath='" + relativePath + '\'' +
-                ", absolutePath='" + absolutePath + '\'' +
-                ", year=" + year +
-                ", track=" + track +
-                ", startFrom=" + startFrom +
-                ", dateAdded=" + dateAdded +
-                ", id=" + id +
-                ", duration=" + duration +
-                ", albumId=" + albumId +
-                ", albumArt=" + albumArt +
-                '}';
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Music)) return false;
+        return getId() == ((Music) o).getId();
     }
 
     @Override
-    public int describeContents() {
-        return 0;
+    public int hashCode() {
+        return Long.hashCode(getId());
     }
 
+    @NonNull
     @Override
-    public void writeToParcel(Parcel dest, int flags) {
-        dest.writeString(artist);
-        dest.writeString(title);
-        dest.writeString(displayName);
-        dest.writeString(album);
-        dest.writeString(relativePath);
-        dest.writeString(absolutePath);
-        dest.writeString(albumArt);
-        dest.writeInt(year);
-        dest.writeInt(track);
-        dest.writeInt(startFrom);
-        dest.writeLong(dateAdded);
-        dest.writeLong(id);
-        dest.writeLong(duration);
-        dest.writeLong(albumId);
+    public String toString() {
+        return "Music{" +
+                "artist='" + getArtist() + '\'' +
+                ", title='" + getTitle() + '\'' +
+                ", displayName='" + getDisplayName() + '\'' +
+                ", album='" + getAlbum() + '\'' +
+                ", relativePath='" + getRelativePath() + '\'' +
+                ", absolutePath='" + getAbsolutePath() + '\'' +
+                ", year=" + getYear() +
+                ", track=" + getTrack() +
+                ", startFrom=" + getStartFrom() +
+                ", dateAdded=" + getDateAdded() +
+                ", id=" + getId() +
+                ", duration=" + getDuration() +
+                ", albumId=" + getAlbumId() +
+                ", albumArt=" + getAlbumArt() +
+                '}';
     }
 }
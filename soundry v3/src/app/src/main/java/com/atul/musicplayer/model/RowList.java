@@ -0,0 +1,9 @@
+package com.atul.musicplayer.model;
+
+// a list of table rows that can be read without creating a Music for each,
+// binds go through this instead of get
+public interface RowList {
+    LibraryTable getTable(int index);
+
+    int getRow(int index);
+}
@@ -0,0 +1,122 @@
+package com.atul.musicplayer.player;
+
+import static com.atul.musicplayer.MPConstants.VOLUME_NORMAL;
+
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+// fades the current track out and the next one in. Ramps run on a timing
+// thread of their own, the 100 ms progress loop is far too coarse for them
+class CrossfadeEngine {
+    private static final long STEP_MS = 20;
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+    // guards the players against a ramp step running while a fade is cancelled
+    private final Object lock = new Object();
+    // the fade a step belongs to, bumped by every schedule and cancel
+    private int generation = 0;
+    private boolean fading = false;
+    // incoming was started by this engine since the last schedule
+    private boolean started = false;
+    // ducking scales both ramps
+    private volatile float volume = VOLUME_NORMAL;
+
+    CrossfadeEngine(Listener listener) {
+        this.listener = listener;
+        thread = new HandlerThread("Crossfade", Process.THREAD_PRIORITY_AUDIO);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    void setVolume(float volume) {
+        this.volume = volume;
+    }
+
+    boolean isFading() {
+        synchronized (lock) {
+            return fading;
+        }
+    }
+
+    // starts incoming silently delayMs from now and hands over within durationMs
+    void schedule(MediaPlayer outgoing, MediaPlayer incoming, long delayMs, long durationMs) {
+        int token;
+        synchronized (lock) {
+            token = ++generation;
+            fading = false;
+            started = false;
+        }
+        handler.removeCallbacksAndMessages(null);
+        handler.postDelayed(() -> start(outgoing, incoming, durationMs, token), Math.max(0, delayMs));
+    }
+
+    // no step touches the players once this returns. True when the incoming
+    // player was started, it is left playing for the caller to stop
+    boolean cancel() {
+        synchronized (lock) {
+            generation++;
+            fading = false;
+            handler.removeCallbacksAndMessages(null);
+            boolean wasStarted = started;
+            started = false;
+            return wasStarted;
+        }
+    }
+
+    void quit() {
+        cancel();
+        thread.quitSafely();
+    }
+
+    private void start(MediaPlayer outgoing, MediaPlayer incoming, long durationMs, int token) {
+        synchronized (lock) {
+            if (token != generation)
+                return;
+
+            try {
+                incoming.setVolume(0f, 0f);
+                incoming.start();
+            } catch (IllegalStateException e) {
+                e.printStackTrace();
+                return;
+            }
+            started = true;
+            fading = true;
+        }
+        step(outgoing, incoming, SystemClock.uptimeMillis(), Math.max(1, durationMs), token);
+    }
+
+    private void step(MediaPlayer outgoing, MediaPlayer incoming, long startTime, long durationMs, int token) {
+        synchronized (lock) {
+            if (token != generation)
+                return;
+
+            float progress = Math.min(1f, (SystemClock.uptimeMillis() - startTime) / (float) durationMs);
+            // equal power curves, the sum stays as loud as either track alone
+            float in = (float) Math.sin(progress * Math.PI / 2) * volume;
+            float out = (float) Math.cos(progress * Math.PI / 2) * volume;
+            outgoing.setVolume(out, out);
+            incoming.setVolume(in, in);
+
+            if (progress >= 1f) {
+                fading = false;
+                generation++;
+                mainHandler.post(listener::onCrossfadeFinished);
+                return;
+            }
+        }
+        handler.postDelayed(() -> step(outgoing, incoming, startTime, durationMs, token), STEP_MS);
+    }
+
+    interface Listener {
+        // on the main thread, incoming plays at full volume and outgoing is silent
+        void onCrossfadeFinished();
+    }
+}
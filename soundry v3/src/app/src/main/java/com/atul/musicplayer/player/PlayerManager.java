@@ -29,6 +29,7 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Observer;
 
+import com.atul.musicplayer.MPPreferences;
 import com.atul.musicplayer.model.Music;
 
 import java.util.ArrayList;
@@ -45,6 +46,13 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
     private final MutableLiveData<Integer> progressPercent = new MutableLiveData<>();
     private int playerState;
     private MediaPlayer mediaPlayer;
+    // gapless playback: the next track waits prepared on a second player
+    // chained with setNextMediaPlayer, the two players swap roles every track.
+    // With crossfade the chain is left out and the engine starts it instead
+    private MediaPlayer nextMediaPlayer;
+    private boolean prepared;
+    private boolean nextPrepared;
+    private final CrossfadeEngine crossfadeEngine = new CrossfadeEngine(this::onCrossfadeFinished);
     private NotificationReceiver notificationReceiver;
     private PlayerNotificationManager notificationManager;
     private int currentAudioFocus = AUDIO_NO_FOCUS_NO_DUCK;
@@ -88,6 +96,7 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
         this.context = playerService.getApplicationContext();
         this.playerQueue = PlayerQueue.getInstance();
         this.audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        this.playerQueue.setQueueListener(this::onQueueChanged);
 
         Observer<Integer> progressObserver = percent -> {
             for (PlayerListener playerListener : playerListeners)
@@ -177,6 +186,7 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
     }
 
     public void setMusicList(List<Music> musicList) {
+        prepared = false; // both players are reset right after, nothing to prepare
         playerQueue.setCurrentQueue(new ArrayList<>(musicList));
         initMediaPlayer(); // play now
     }
@@ -184,6 +194,7 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
     public void setMusic(Music music) {
         List<Music> musicList = new ArrayList<>();
         musicList.add(music);
+        prepared = false;
         playerQueue.setCurrentQueue(musicList);
         initMediaPlayer();
     }
@@ -215,13 +226,39 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
 
     @Override
     public void onCompletion(MediaPlayer mp) {
-        playNext();
+        if (mp != mediaPlayer)
+            return;
+
+        // a chained or fading in player is already playing
+        if (nextPrepared) {
+            playerQueue.next();
+            switchToNextMediaPlayer();
+        } else {
+            playNext();
+        }
         for (PlayerListener listener : playerListeners)
             listener.onPlaybackCompleted();
     }
 
     @Override
     public void onPrepared(MediaPlayer mp) {
+        if (mp == nextMediaPlayer) {
+            if (getCrossfadeMs() > 0) {
+                nextPrepared = true;
+                scheduleCrossfade();
+                return;
+            }
+
+            try {
+                mediaPlayer.setNextMediaPlayer(mp);
+                nextPrepared = true;
+            } catch (IllegalStateException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        prepared = true;
         mp.start();
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
@@ -240,6 +277,8 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
             mediaObserver = new MediaObserver();
             new Thread(mediaObserver).start();
         }
+
+        prepareNextMediaPlayer();
     }
 
     public boolean isPlaying() {
@@ -253,6 +292,7 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
     public void pauseMediaPlayer() {
         setPlayerState(PlayerListener.State.PAUSED);
         mediaPlayer.pause();
+        cancelCrossfade();
 
         playerService.stopForeground(false);
         notificationManager.getNotificationManager().notify(NOTIFICATION_ID, notificationManager.createNotification());
@@ -264,6 +304,7 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
                 initMediaPlayer();
             }
             mediaPlayer.start();
+            scheduleCrossfade();
             setPlayerState(PlayerListener.State.RESUMED);
             playerService.startForeground(NOTIFICATION_ID, notificationManager.createNotification());
             notificationManager.updateNotification();
@@ -276,19 +317,25 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
     }
 
     public void playNext() {
+        boolean chained = nextPrepared;
         playerQueue.next();
-        initMediaPlayer();
+        if (chained)
+            switchToNextMediaPlayer();
+        else
+            initMediaPlayer();
     }
 
     public void playPause() {
         if (isPlaying()) {
             mediaPlayer.pause();
+            cancelCrossfade();
             setPlayerState(PlayerListener.State.PAUSED);
         } else {
             if (mediaPlayer == null) {
                 initMediaPlayer();
             }
             mediaPlayer.start();
+            scheduleCrossfade();
             setPlayerState(PlayerListener.State.PLAYING);
         }
     }
@@ -297,6 +344,7 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
         if (mediaObserver != null) {
             mediaObserver.stop();
         }
+        crossfadeEngine.quit();
 
         if (playerService != null) {
             playerService.stopForeground(true);
@@ -308,13 +356,23 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
             mediaPlayer = null;
         }
 
+        if (nextMediaPlayer != null) {
+            nextMediaPlayer.release();
+            nextMediaPlayer = null;
+        }
+        prepared = false;
+        nextPrepared = false;
+        playerQueue.setQueueListener(null);
+
         for (PlayerListener playerListener : playerListeners)
             playerListener.onRelease();
 
     }
 
     public void seekTo(int position) {
+        cancelCrossfade();
         mediaPlayer.seekTo(position);
+        scheduleCrossfade();
     }
 
     private void configurePlayerState() {
@@ -324,11 +382,14 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
             pauseMediaPlayer();
         } else {
 
-            if (currentAudioFocus == AUDIO_NO_FOCUS_CAN_DUCK) {
-                // We're permitted to play, but only if we 'duck', ie: play softly
-                mediaPlayer.setVolume(VOLUME_DUCK, VOLUME_DUCK);
-            } else {
-                mediaPlayer.setVolume(VOLUME_NORMAL, VOLUME_NORMAL);
+            // We're permitted to play, but only if we 'duck', ie: play softly
+            // a running fade picks the volume up with its next step
+            float volume = getVolume();
+            crossfadeEngine.setVolume(volume);
+            if (!crossfadeEngine.isFading()) {
+                mediaPlayer.setVolume(volume, volume);
+                if (nextMediaPlayer != null)
+                    nextMediaPlayer.setVolume(volume, volume);
             }
 
             // If we were playing when we lost focus, we need to resume playing.
@@ -351,28 +412,149 @@ public class PlayerManager implements MediaPlayer.OnBufferingUpdateListener, Med
         }
     }
 
+    private float getVolume() {
+        return currentAudioFocus == AUDIO_NO_FOCUS_CAN_DUCK ? VOLUME_DUCK : VOLUME_NORMAL;
+    }
+
+    private MediaPlayer createMediaPlayer() {
+        MediaPlayer player = new MediaPlayer();
+
+        player.setOnPreparedListener(this);
+        player.setOnCompletionListener(this);
+        player.setWakeMode(context, PowerManager.PARTIAL_WAKE_LOCK);
+        player.setAudioAttributes(new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_MEDIA)
+                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                .build());
+        return player;
+    }
+
+    private static Uri getTrackUri(Music music) {
+        return ContentUris.withAppendedId(
+                android.provider.MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, music.getId());
+    }
+
+    // prepares the track after the current one on the second player. Runs
+    // again whenever the queue, shuffle or repeat change what comes next
+    private void prepareNextMediaPlayer() {
+        clearNextMediaPlayer();
+        if (!prepared || (!MPPreferences.getGapless(context) && getCrossfadeMs() == 0))
+            return;
+
+        List<Music> queue = playerQueue.getCurrentQueue();
+        if (queue == null || queue.isEmpty())
+            return;
+
+        if (nextMediaPlayer == null)
+            nextMediaPlayer = createMediaPlayer();
+
+        try {
+            // the same session keeps the equalizer attached across tracks
+            nextMediaPlayer.setAudioSessionId(mediaPlayer.getAudioSessionId());
+            nextMediaPlayer.setVolume(getVolume(), getVolume());
+            nextMediaPlayer.setDataSource(context, getTrackUri(playerQueue.peekNext()));
+            nextMediaPlayer.prepareAsync();
+        } catch (Exception e) {
+            e.printStackTrace();
+            nextMediaPlayer.reset();
+        }
+    }
+
+    private void onQueueChanged() {
+        if (prepared)
+            prepareNextMediaPlayer();
+    }
+
+    private void clearNextMediaPlayer() {
+        crossfadeEngine.cancel();
+        if (mediaPlayer != null)
+            mediaPlayer.setVolume(getVolume(), getVolume());
+        if (nextPrepared) {
+            try {
+                mediaPlayer.setNextMediaPlayer(null);
+            } catch (IllegalStateException e) {
+                e.printStackTrace();
+            }
+            nextPrepared = false;
+        }
+        if (nextMediaPlayer != null)
+            nextMediaPlayer.reset();
+    }
+
+    // the prepared player takes over, the old one is recycled for the track after
+    private void switchToNextMediaPlayer() {
+        crossfadeEngine.cancel();
+        MediaPlayer finished = mediaPlayer;
+        mediaPlayer = nextMediaPlayer;
+        nextMediaPlayer = finished;
+        nextPrepared = false;
+
+        finished.reset();
+        mediaPlayer.setVolume(getVolume(), getVolume());
+        if (!mediaPlayer.isPlaying())
+            mediaPlayer.start();
+        setPlayerState(PlayerListener.State.PLAYING);
+
+        for (PlayerListener listener : playerListeners)
+            listener.onMusicSet(playerQueue.getCurrentMusic());
+
+        prepareNextMediaPlayer();
+    }
+
+    private int getCrossfadeMs() {
+        return MPPreferences.getCrossfade(context) * 1000;
+    }
+
+    // the fade starts so that it ends with the current track. Short tracks
+    // fade over half their length at most, a late seek fades over what is left
+    private void scheduleCrossfade() {
+        int overlap = getCrossfadeMs();
+        if (overlap <= 0 || !nextPrepared || !isPlaying())
+            return;
+
+        int duration = mediaPlayer.getDuration();
+        int remaining = duration - mediaPlayer.getCurrentPosition();
+        int fade = Math.max(0, Math.min(Math.min(overlap, duration / 2), remaining));
+        crossfadeEngine.setVolume(getVolume());
+        crossfadeEngine.schedule(mediaPlayer, nextMediaPlayer, remaining - fade, fade);
+    }
+
+    // a fade cut short leaves the current track at full volume and the next
+    // one waiting at its start, ready to fade in again
+    private void cancelCrossfade() {
+        if (crossfadeEngine.cancel() && nextPrepared) {
+            if (nextMediaPlayer.isPlaying())
+                nextMediaPlayer.pause();
+            nextMediaPlayer.seekTo(0);
+        }
+        if (mediaPlayer != null)
+            mediaPlayer.setVolume(getVolume(), getVolume());
+    }
+
+    // the queue moves on only once the next track has taken over, shuffle and
+    // repeat already decided which one that is when it was prepared
+    private void onCrossfadeFinished() {
+        if (!nextPrepared || !nextMediaPlayer.isPlaying())
+            return;
+
+        playerQueue.next();
+        switchToNextMediaPlayer();
+    }
+
     private void initMediaPlayer() {
+        prepared = false;
         if (mediaPlayer != null) {
+            clearNextMediaPlayer();
             mediaPlayer.reset();
         } else {
-            mediaPlayer = new MediaPlayer();
-
-            mediaPlayer.setOnPreparedListener(this);
-            mediaPlayer.setOnCompletionListener(this);
-            mediaPlayer.setWakeMode(context, PowerManager.PARTIAL_WAKE_LOCK);
-            mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
-                    .setUsage(AudioAttributes.USAGE_MEDIA)
-                    .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
-                    .build());
-
+            mediaPlayer = createMediaPlayer();
             notificationManager = playerService.getNotificationManager();
         }
 
         tryToGetAudioFocus();
         Music currentMusic = playerQueue.getCurrentMusic();
         if (currentMusic != null) {
-            Uri trackUri = ContentUris.withAppendedId(
-                    android.provider.MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, currentMusic.id);
+            Uri trackUri = getTrackUri(currentMusic);
 
             try {
                 mediaPlayer.setDataSource(context, trackUri);
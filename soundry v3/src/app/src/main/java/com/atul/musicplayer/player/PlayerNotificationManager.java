@@ -14,7 +14,10 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
+import android.graphics.Color;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
@@ -23,15 +26,35 @@ import androidx.core.app.NotificationManagerCompat;
 
 import com.atul.musicplayer.MainActivity;
 import com.atul.musicplayer.R;
-import com.atul.musicplayer.helper.MusicLibraryHelper;
+import com.atul.musicplayer.helper.AlbumColors;
+import com.atul.musicplayer.helper.ArtworkLoader;
 import com.atul.musicplayer.model.Music;
 
 public class PlayerNotificationManager {
+    // state changes come in bursts, e.g. a pause followed by an explicit
+    // notify, only the state at the end of the window is posted
+    private static final long UPDATE_WINDOW_MS = 50;
 
     private final NotificationManager notificationManager;
     private final PlayerService playerService;
     private NotificationCompat.Builder notificationBuilder;
     private final androidx.media.app.NotificationCompat.MediaStyle notificationStyle;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable updateTask = this::postUpdate;
+    private boolean updatePending = false;
+
+    // built once, only the play and pause icons swap
+    private NotificationCompat.Action prevAction;
+    private NotificationCompat.Action nextAction;
+    private NotificationCompat.Action playAction;
+    private NotificationCompat.Action pauseAction;
+
+    // what the posted notification shows, an update that would show the
+    // same is dropped
+    private long postedMusicId = -1;
+    private boolean postedPlaying;
+    private int postedColor;
+    private Bitmap postedAlbumArt;
 
     PlayerNotificationManager(@NonNull final PlayerService playerService) {
         this.playerService = playerService;
@@ -50,17 +73,17 @@ public class PlayerNotificationManager {
         return PendingIntent.getBroadcast(playerService, REQUEST_CODE, pauseIntent, PendingIntent.FLAG_IMMUTABLE);
     }
 
+    // the caller posts it, through startForeground or notify
     public Notification createNotification() {
         final Music song = playerService.getPlayerManager().getCurrentMusic();
 
-
-        final Intent openPlayerIntent = new Intent(playerService, MainActivity.class);
-        openPlayerIntent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP
-                | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-        final PendingIntent contentIntent = PendingIntent.getActivity(playerService, REQUEST_CODE,
-                openPlayerIntent, PendingIntent.FLAG_IMMUTABLE);
-
         if (notificationBuilder == null) {
+            final Intent openPlayerIntent = new Intent(playerService, MainActivity.class);
+            openPlayerIntent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP
+                    | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            final PendingIntent contentIntent = PendingIntent.getActivity(playerService, REQUEST_CODE,
+                    openPlayerIntent, PendingIntent.FLAG_IMMUTABLE);
+
             notificationBuilder = new NotificationCompat.Builder(playerService, CHANNEL_ID);
             notificationBuilder
                     .setShowWhen(false)
@@ -69,67 +92,103 @@ public class PlayerNotificationManager {
                     .setCategory(NotificationCompat.CATEGORY_TRANSPORT)
                     .setContentIntent(contentIntent)
                     .setAutoCancel(true)
+                    .setStyle(notificationStyle)
                     .setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
-        }
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            createNotificationChannel();
-        }
-
-        Bitmap albumArt = MusicLibraryHelper.getThumbnail(playerService.getApplicationContext(), song.albumArt);
 
-        notificationBuilder
-                .setContentTitle(song.title)
-                .setContentText(song.artist)
-                .setColor(MusicLibraryHelper.getDominantColorFromThumbnail(albumArt))
-                .setLargeIcon(albumArt)
-                .setStyle(notificationStyle);
+            prevAction = notificationAction(R.drawable.ic_controls_prev, PREV_ACTION);
+            nextAction = notificationAction(R.drawable.ic_controls_next, NEXT_ACTION);
+            playAction = notificationAction(R.drawable.ic_controls_play, PLAY_PAUSE_ACTION);
+            pauseAction = notificationAction(R.drawable.ic_controls_pause, PLAY_PAUSE_ACTION);
 
-        notificationBuilder.clearActions();
-        notificationBuilder
-                .addAction(notificationAction(PREV_ACTION))
-                .addAction(notificationAction(PLAY_PAUSE_ACTION))
-                .addAction(notificationAction(NEXT_ACTION));
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                createNotificationChannel();
+            }
+        }
 
+        applyState(song, playerService.getPlayerManager().isPlaying(), getAlbumColor(song), getAlbumArt(song));
         return notificationBuilder.build();
     }
 
+    // posts the current state once the burst it belongs to is over
     public void updateNotification() {
-        if (notificationBuilder == null)
+        if (notificationBuilder == null || updatePending)
             return;
 
-        notificationBuilder.setOngoing(playerService.getPlayerManager().isPlaying());
+        updatePending = true;
+        mainHandler.postDelayed(updateTask, UPDATE_WINDOW_MS);
+    }
+
+    // nothing is posted after the service is gone
+    public void release() {
+        mainHandler.removeCallbacks(updateTask);
+        updatePending = false;
+    }
+
+    private void postUpdate() {
+        updatePending = false;
+
         PlayerManager playerManager = playerService.getPlayerManager();
-        Music song = playerManager.getCurrentMusic();
-        Bitmap albumArt = MusicLibraryHelper.getThumbnail(playerService.getApplicationContext(),
-                song.albumArt);
+        Music song = playerManager == null ? null : playerManager.getCurrentMusic();
+        if (song == null)
+            return;
+
+        boolean playing = playerManager.isPlaying();
+        int color = getAlbumColor(song);
+        Bitmap albumArt = getAlbumArt(song);
+        if (song.getId() == postedMusicId && playing == postedPlaying
+                && color == postedColor && albumArt == postedAlbumArt)
+            return;
+
+        applyState(song, playing, color, albumArt);
+        NotificationManagerCompat.from(playerService).notify(NOTIFICATION_ID, notificationBuilder.build());
+    }
 
+    private void applyState(Music song, boolean playing, int color, Bitmap albumArt) {
         notificationBuilder.clearActions();
         notificationBuilder
-                .addAction(notificationAction(PREV_ACTION))
-                .addAction(notificationAction(PLAY_PAUSE_ACTION))
-                .addAction(notificationAction(NEXT_ACTION));
+                .addAction(prevAction)
+                .addAction(playing ? pauseAction : playAction)
+                .addAction(nextAction);
 
         notificationBuilder
+                .setOngoing(playing)
                 .setLargeIcon(albumArt)
-                .setColor(MusicLibraryHelper.getDominantColorFromThumbnail(albumArt))
-                .setContentTitle(song.title)
-                .setContentText(song.artist)
-                .setColorized(true)
-                .setAutoCancel(true);
+                .setColor(color)
+                .setContentTitle(song.getTitle())
+                .setContentText(song.getArtist());
+
+        postedMusicId = song.getId();
+        postedPlaying = playing;
+        postedColor = color;
+        postedAlbumArt = albumArt;
+    }
 
-        NotificationManagerCompat.from(playerService).notify(NOTIFICATION_ID, notificationBuilder.build());
+    // only a cover already in memory is used, one that still has to be
+    // decoded is loaded in the background and posted with the next update
+    private Bitmap getAlbumArt(Music song) {
+        if (!song.hasAlbumArt())
+            return null;
+
+        ArtworkLoader artworkLoader = ArtworkLoader.getInstance();
+        long albumId = song.getAlbumId();
+        Bitmap albumArt = artworkLoader.getCached(albumId, ArtworkLoader.THUMBNAIL_SIZE);
+        if (albumArt == null) {
+            artworkLoader.load(albumId, ArtworkLoader.THUMBNAIL_SIZE, bitmap -> {
+                PlayerManager playerManager = playerService.getPlayerManager();
+                Music current = playerManager == null ? null : playerManager.getCurrentMusic();
+                if (bitmap != null && current != null && current.getAlbumId() == albumId)
+                    updateNotification();
+            });
+        }
+        return albumArt;
+    }
+
+    private int getAlbumColor(Music song) {
+        return AlbumColors.getInstance().getColor(song.getAlbumId(), Color.BLACK);
     }
 
     @NonNull
-    private NotificationCompat.Action notificationAction(@NonNull final String action) {
-        int icon = -1;
-        if (action.equals(PREV_ACTION)) icon = R.drawable.ic_controls_prev;
-        else if (action.equals(NEXT_ACTION)) icon = R.drawable.ic_controls_next;
-        else if (action.equals(PLAY_PAUSE_ACTION)) icon =
-                playerService.getPlayerManager().isPlaying()
-                        ? R.drawable.ic_controls_pause
-                        : R.drawable.ic_controls_play;
+    private NotificationCompat.Action notificationAction(int icon, @NonNull final String action) {
         return new NotificationCompat.Action.Builder(icon, action, playerAction(action)).build();
     }
 
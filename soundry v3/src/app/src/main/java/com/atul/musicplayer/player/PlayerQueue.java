@@ -15,6 +15,9 @@ public class PlayerQueue {
     private boolean shuffle = false;
     private boolean repeat = false;
     private int currentPosition = 0;
+    // decided ahead so the player can prepare it, -1 until asked for
+    private int nextPosition = -1;
+    private QueueListener queueListener;
 
     public static PlayerQueue getInstance() {
         if (instance == null) {
@@ -32,7 +35,10 @@ public class PlayerQueue {
     }
 
     public void setShuffle(boolean shuffle) {
+        Music peeked = getPeeked();
         this.shuffle = shuffle;
+        nextPosition = -1;
+        onQueueChanged(peeked);
     }
 
     public boolean isRepeat() {
@@ -40,7 +46,28 @@ public class PlayerQueue {
     }
 
     public void setRepeat(boolean repeat) {
+        Music peeked = getPeeked();
         this.repeat = repeat;
+        nextPosition = -1;
+        onQueueChanged(peeked);
+    }
+
+    public void setQueueListener(QueueListener queueListener) {
+        this.queueListener = queueListener;
+    }
+
+    // the track handed out by the last peek, null when nobody asked yet
+    private Music getPeeked() {
+        return nextPosition < 0 || isCurrentPositionOutOfBound(nextPosition) ? null : currentQueue.get(nextPosition);
+    }
+
+    // the listener only hears about a change that makes next() play another
+    // track than the one it peeked
+    private void onQueueChanged(Music peeked) {
+        if (peeked == null || queueListener == null)
+            return;
+        if (currentQueue.isEmpty() || peekNext().getId() != peeked.getId())
+            queueListener.onQueueChanged();
     }
 
     public List<Music> getCurrentQueue() {
@@ -48,12 +75,15 @@ public class PlayerQueue {
     }
 
     public void setCurrentQueue(List<Music> currentQueue) {
+        Music peeked = getPeeked();
         this.played = new ArrayList<>();
         this.currentQueue = currentQueue;
         this.currentPosition = 0;
         if (this.shuffle) {
             Collections.shuffle(currentQueue);
         }
+        nextPosition = -1;
+        onQueueChanged(peeked);
     }
 
     public int getCurrentPosition() {
@@ -65,19 +95,35 @@ public class PlayerQueue {
     }
 
     public void addMusicListToQueue(List<Music> music) {
+        Music peeked = getPeeked();
         currentQueue.addAll(music);
         this.currentPosition = (shuffle) ? random.nextInt(currentQueue.size()) : 0;
+        nextPosition = -1;
+        onQueueChanged(peeked);
     }
 
-    public void next() {
-        played.add(currentPosition);
-        if (!repeat) {
-            currentPosition = (shuffle)
+    // the position next() moves to, the same until the queue changes
+    public int peekNextPosition() {
+        if (nextPosition < 0 || isCurrentPositionOutOfBound(nextPosition)) {
+            nextPosition = repeat
+                    ? currentPosition
+                    : (shuffle)
                     ? random.nextInt(currentQueue.size())
                     : isCurrentPositionOutOfBound(currentPosition + 1)
                     ? 0
-                    : ++currentPosition;
+                    : currentPosition + 1;
         }
+        return nextPosition;
+    }
+
+    public Music peekNext() {
+        return currentQueue.get(peekNextPosition());
+    }
+
+    public void next() {
+        played.add(currentPosition);
+        currentPosition = peekNextPosition();
+        nextPosition = -1;
     }
 
     public void prev() {
@@ -88,18 +134,27 @@ public class PlayerQueue {
             currentPosition = played.get(lastPosition);
             played.remove(lastPosition);
         }
+        nextPosition = -1;
     }
 
     public void removeMusicFromQueue(int position) {
         if (!isCurrentPositionOutOfBound(position)) {
+            Music peeked = getPeeked();
             currentQueue.remove(position);
             if(currentPosition > position)
                 currentPosition -= 1;
+            // a track rolled by shuffle stays picked, the others follow the current one
+            if (!isRandomNext() || nextPosition == position)
+                nextPosition = -1;
+            else if (nextPosition > position)
+                nextPosition -= 1;
+            onQueueChanged(peeked);
         }
     }
 
     public void swap(int one, int two) {
         if (!isCurrentPositionOutOfBound(one) && !isCurrentPositionOutOfBound(two)) {
+            Music peeked = getPeeked();
             if(one == currentPosition) {
                 currentPosition = two;
             }
@@ -107,6 +162,21 @@ public class PlayerQueue {
                 currentPosition = one;
             }
             Collections.swap(currentQueue, one, two);
+            if (!isRandomNext())
+                nextPosition = -1;
+            else if (nextPosition == one)
+                nextPosition = two;
+            else if (nextPosition == two)
+                nextPosition = one;
+            onQueueChanged(peeked);
         }
     }
+
+    private boolean isRandomNext() {
+        return shuffle && !repeat;
+    }
+
+    public interface QueueListener {
+        void onQueueChanged();
+    }
 }
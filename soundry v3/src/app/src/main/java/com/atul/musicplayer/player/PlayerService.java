@@ -175,6 +175,8 @@ public class PlayerService extends Service {
             playerManager.unregisterActionsReceiver();
             playerManager.release();
         }
+        if (notificationManager != null)
+            notificationManager.release();
         notificationManager = null;
         playerManager = null;
 
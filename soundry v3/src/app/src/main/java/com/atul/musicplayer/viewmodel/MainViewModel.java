@@ -1,179 +1,187 @@
 package com.atul.musicplayer.viewmodel;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
-import com.atul.musicplayer.App;
 import com.atul.musicplayer.MPPreferences;
+import com.atul.musicplayer.helper.AlbumColors;
+import com.atul.musicplayer.helper.ArtworkLoader;
+import com.atul.musicplayer.helper.LibraryAggregator;
+import com.atul.musicplayer.helper.LibraryScanner;
+import com.atul.musicplayer.helper.LibrarySnapshot;
+import com.atul.musicplayer.helper.ListHelper;
+import com.atul.musicplayer.helper.MusicLibrarySync;
+import com.atul.musicplayer.helper.SearchIndex;
+import com.atul.musicplayer.helper.SongQuery;
 import com.atul.musicplayer.model.Album;
 import com.atul.musicplayer.model.Artist;
 import com.atul.musicplayer.model.Folder;
+import com.atul.musicplayer.model.Library;
+import com.atul.musicplayer.model.LibraryTable;
 import com.atul.musicplayer.model.Music;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
 
 
 public class MainViewModel extends ViewModel {
 
-    public MutableLiveData<List<Music>> songsList;
-    public MutableLiveData<List<Album>> albumList;
-    public MutableLiveData<List<Artist>> artistList;
-    public MutableLiveData<List<Folder>> folderList;
+    // created up front, the scanner worker posts to them while the main
+    // thread observes
+    private final MutableLiveData<List<Music>> songsList = new MutableLiveData<>();
+    private final MutableLiveData<List<Album>> albumList = new MutableLiveData<>();
+    private final MutableLiveData<List<Artist>> artistList = new MutableLiveData<>();
+    private final MutableLiveData<List<Folder>> folderList = new MutableLiveData<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean libraryPublished = false;
+    // the view model outlives configuration changes, the library is loaded once
+    private boolean loaded = false;
+    // taken by whichever scan task runs first, a newer refresh replacing a
+    // queued one never drops the restore
+    private volatile boolean restorePending = false;
+    // what the published library was built from, only touched on the scanner worker
+    private LibraryTable publishedTable;
+    private Set<String> publishedExcluded;
 
     public MainViewModel() {
     }
 
     public MutableLiveData<List<Music>> getSongsList() {
-        if (songsList != null) return songsList;
-        return songsList = new MutableLiveData<>();
+        return songsList;
     }
 
-    public void setSongsList(List<Music> musicList) {
-        List<String> excludedFolderList = MPPreferences.getExcludedFolders(App.getContext());
-        List<Music> songs = new ArrayList<>();
-
-        for (Music music : musicList) {
-            if (!excludedFolderList.contains(music.relativePath))
-                songs.add(music);
-        }
+    public void loadLibrary(Context context) {
+        if (loaded)
+            return;
+        loaded = true;
 
-        Collections.sort(songs, new SongComparator());
-        if (songsList == null) {
-            songsList = new MutableLiveData<>();
-        }
-        songsList.setValue(songs);
+        restorePending = true;
+        refreshLibrary(context);
     }
 
-    public MutableLiveData<List<Album>> getAlbumList() {
-        if (albumList != null) return albumList;
-        return albumList = new MutableLiveData<>();
+    private void restoreSnapshot(Context appContext) {
+        restorePending = false;
+        AlbumColors.getInstance().load();
+        LibrarySnapshot snapshot = LibrarySnapshot.read(appContext);
+        if (snapshot != null && MusicLibrarySync.getInstance().restore(snapshot)) {
+            setLibrarySnapshot(snapshot);
+            publishedTable = snapshot.table;
+            publishedExcluded = MPPreferences.getExcludedFolderSet(appContext);
+        }
     }
 
-    public MutableLiveData<List<Artist>> getArtistList() {
-        if (artistList != null) return artistList;
-        return artistList = new MutableLiveData<>();
+    public void refreshLibrary(Context context) {
+        Context appContext = context.getApplicationContext();
+
+        LibraryScanner.getInstance().submit(signal -> {
+            if (restorePending)
+                restoreSnapshot(appContext);
+
+            MusicLibrarySync librarySync = MusicLibrarySync.getInstance();
+            LibraryTable table = librarySync.sync(appContext, signal, scanned -> {
+                // stream partial results only while nothing else is on screen
+                if (!libraryPublished && !signal.isCanceled())
+                    getSongsList().postValue(LibraryAggregator.filterExcluded(scanned,
+                            MPPreferences.getExcludedFolderSet(appContext)));
+            });
+
+            // a sync that found nothing new hands back the table already on screen
+            Set<String> excluded = MPPreferences.getExcludedFolderSet(appContext);
+            if (table == publishedTable && excluded.equals(publishedExcluded))
+                return;
+
+            Library library = LibraryAggregator.aggregate(table, excluded);
+            signal.throwIfCanceled();
+
+            publishLibrary(library);
+            publishedTable = table;
+            publishedExcluded = excluded;
+            LibrarySnapshot.write(appContext, librarySync.createSnapshot(table, library));
+            library.getSongIndex();
+            table.getDisplayStrings().precompute();
+        });
     }
 
-    public MutableLiveData<List<Folder>> getFolderList() {
-        if (folderList != null) return folderList;
-        return folderList = new MutableLiveData<>();
+    public void setLibrarySnapshot(LibrarySnapshot snapshot) {
+        publishLibrary(snapshot.library);
+        snapshot.library.getSongIndex();
+        // a restored library skipped aggregation, collate before the first sort tap
+        snapshot.table.getCollationRanks();
+        snapshot.table.getDisplayStrings().precompute();
     }
 
-    public void parseFolderList(List<Music> songsList) {
-        HashMap<String, Folder> map = new HashMap<>();
-        List<Folder> folders = new ArrayList<>();
-
-        for (Music music : songsList) {
-            Folder folder;
-            if (map.containsKey(music.relativePath)) {
-                folder = map.get(music.relativePath);
-                assert folder != null;
-                folder.songsCount += 1;
-            } else {
-                folder = new Folder(1, music.relativePath);
-                folders.add(folder);
-            }
-            map.put(music.relativePath, folder);
+    public List<Music> searchSongs(List<Music> songs, String query) {
+        SongQuery songQuery = SongQuery.parse(query);
+        if (songQuery.hasFilters()) {
+            // field filters are cheap per row, the text search then only
+            // ranks what is left
+            List<Music> filtered = songQuery.filter(songs);
+            String text = songQuery.getText();
+            return text.isEmpty() ? filtered : ListHelper.searchMusicByName(filtered, text);
         }
-
-        Collections.sort(folders, new FolderComparator());
-        if (folderList == null)
-            folderList = new MutableLiveData<>();
-        folderList.setValue(folders);
-    }
-
-    public void parseAlbumList(List<Music> songsList) {
-        HashMap<String, Album> albumMap = new HashMap<>();
-
-        for (Music music : songsList) {
-            if (albumMap.containsKey(music.album)) {
-                Album album = albumMap.get(music.album);
-                assert album != null;
-                album.duration += music.duration;
-                album.music.add(music);
-
-                albumMap.put(music.album, album);
-            } else {
-                List<Music> list = new ArrayList<>();
-                list.add(music);
-                Album album = new Album(music.artist, music.album, String.valueOf(music.year), music.duration, list);
-                albumMap.put(music.album, album);
-            }
+        if (songQuery.getText().isEmpty())
+            return songs;
+
+        Library library = MusicLibrarySync.getInstance().getPublishedLibrary();
+        if (library != null && library.songs == songs) {
+            SearchIndex index = library.getSongIndex();
+            if (index != null)
+                return index.search(songQuery.getText());
         }
 
-        List<Album> albums = new ArrayList<>(albumMap.values());
-        Collections.sort(albums, new AlbumComparator());
-
-        if (albumList == null)
-            albumList = new MutableLiveData<>();
-        albumList.setValue(albums);
+        // streamed partial lists are not indexed
+        return ListHelper.searchMusicByName(songs, songQuery.getText());
     }
 
-    public void parseArtistList(List<Album> albums) {
-        HashMap<String, Artist> artistMap = new HashMap<>();
-
-        for (Album album : albums) {
-            if (artistMap.containsKey(album.artist)) {
-                Artist artist = artistMap.get(album.artist);
-                assert artist != null;
-
-                artist.albums.add(album);
-                artist.songCount += album.music.size();
-                artist.albumCount += 1;
-                artistMap.put(album.artist, artist);
-
-            } else {
-                List<Album> list = new ArrayList<>();
-                list.add(album);
-
-                Artist artist = new Artist(album.artist, list, album.music.size(), list.size());
-                artistMap.put(album.artist, artist);
-            }
-        }
-
-        List<Artist> artists = new ArrayList<>(artistMap.values());
-        Collections.sort(artists, new ArtistComparator());
-
-        if (artistList == null)
-            artistList = new MutableLiveData<>();
-        artistList.setValue(artists);
+    // the whole library list is served from the library's cached sort orders,
+    // anything else is sorted on the spot
+    public List<Music> sortSongs(List<Music> songs, int mode, boolean reverse) {
+        Library library = MusicLibrarySync.getInstance().getPublishedLibrary();
+        if (library != null && library.songs == songs)
+            return library.getSortedSongs(mode, reverse);
+        return ListHelper.sortMusic(songs, mode, reverse);
     }
 
-    @Override
-    protected void onCleared() {
-        super.onCleared();
+    public List<Album> sortAlbums(List<Album> albums, int mode, boolean reverse) {
+        Library library = MusicLibrarySync.getInstance().getPublishedLibrary();
+        if (library != null && library.albums == albums)
+            return library.getSortedAlbums(mode, reverse);
+        return ListHelper.sortAlbums(albums, mode, reverse);
     }
-}
 
-class AlbumComparator implements Comparator<Album> {
-    @Override
-    public int compare(Album a1, Album a2) {
-        return a1.title.compareTo(a2.title);
+    private void publishLibrary(Library library) {
+        libraryPublished = true;
+        MusicLibrarySync.getInstance().setPublishedLibrary(library);
+        ArtworkLoader.getInstance().setLibrary(library);
+
+        // all four lists change in the same main thread frame, observers never
+        // see songs from one scan next to albums from another
+        mainHandler.post(() -> {
+            getSongsList().setValue(library.songs);
+            getFolderList().setValue(library.folders);
+            getAlbumList().setValue(library.albums);
+            getArtistList().setValue(library.artists);
+        });
     }
-}
 
-class SongComparator implements Comparator<Music> {
-    @Override
-    public int compare(Music m1, Music m2) {
-        return Long.compare(m1.track, m2.track);
+    public MutableLiveData<List<Album>> getAlbumList() {
+        return albumList;
     }
-}
 
-class ArtistComparator implements Comparator<Artist> {
-    @Override
-    public int compare(Artist a1, Artist a2) {
-        return a1.name.compareTo(a2.name);
+    public MutableLiveData<List<Artist>> getArtistList() {
+        return artistList;
     }
-}
 
-class FolderComparator implements Comparator<Folder> {
+    public MutableLiveData<List<Folder>> getFolderList() {
+        return folderList;
+    }
 
     @Override
-    public int compare(Folder f1, Folder f2) {
-        return f1.name.compareTo(f2.name);
+    protected void onCleared() {
+        super.onCleared();
     }
-}
\ No newline at end of file
+}